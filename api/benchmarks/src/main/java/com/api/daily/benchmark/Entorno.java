@@ -0,0 +1,91 @@
+package com.api.daily.benchmark;
+
+import com.api.daily.DailyApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Arranca la API sin servidor web contra un PostgreSQL embebido y siembra los datos.
+ *
+ * Datos sembrados: MISIONES misiones, el usuario USUARIO_PERFIL con
+ * COMPLETADAS_PERFIL misiones hechas y el resto de completaciones repartidas
+ * entre usuarios de POR_USUARIO misiones hechas cada uno.
+ */
+abstract class Entorno {
+    
+    static final int MISIONES = 1000;
+    static final int POR_USUARIO = 100;
+    static final long USUARIO_PERFIL = 1L;
+    static final int COMPLETADAS_PERFIL = 500;
+    
+    EmbeddedPostgres postgres;
+    ConfigurableApplicationContext contexto;
+    JdbcTemplate jdbc;
+    
+    void arrancar(int completaciones) throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        contexto = new SpringApplicationBuilder(DailyApplication.class)
+            .web(WebApplicationType.NONE)
+            .logStartupInfo(false)
+            .properties(
+                "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "spring.datasource.username=postgres",
+                "spring.datasource.password=postgres",
+                "spring.flyway.postgresql.transactional-lock=false",
+                "spring.flyway.placeholders.particionado=false",
+                "spring.jpa.hibernate.ddl-auto=validate",
+                "spring.jpa.open-in-view=false",
+                "usuarios.contrasenas.cifrar-pendientes=false",
+                "fotos.directorio=" + Files.createTempDirectory("fotos-benchmark"),
+                "logging.level.root=WARN",
+                "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=ERROR")
+            .run();
+        jdbc = contexto.getBean(JdbcTemplate.class);
+        sembrar(completaciones);
+    }
+    
+    void parar() throws IOException {
+        if (contexto != null) {
+            contexto.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+    
+    <T> T bean(Class<T> tipo) {
+        return contexto.getBean(tipo);
+    }
+    
+    private void sembrar(int completaciones) {
+        int usuarios = 1 + (completaciones + POR_USUARIO - 1) / POR_USUARIO;
+        jdbc.update("INSERT INTO misiones (id_mision, titulo_mision, texto_mision, experencia_mision) " +
+                    "SELECT g, 'Misión ' || g, 'Texto de la misión ' || g, 10 + g % 40 " +
+                    "FROM generate_series(1, ?) g", MISIONES);
+        jdbc.update("INSERT INTO usuario (id_usuario, name, passwd, exp, fecha_registro) " +
+                    "SELECT g, 'usuario' || g, 'passwd', 0, now() FROM generate_series(1, ?) g", usuarios);
+        // Los ids se fijan a mano; las secuencias siguen a partir del último
+        jdbc.queryForObject("SELECT setval('misiones_id_mision_seq', ?)", Long.class, MISIONES);
+        jdbc.queryForObject("SELECT setval('usuario_id_usuario_seq', ?)", Long.class, usuarios);
+        jdbc.update("INSERT INTO misiones_hechas (id_key, id_usuario, id_mision, fecha) " +
+                    "SELECT nextval('misiones_hechas_id_key_seq'), ?, g, now() - g * interval '1 day' " +
+                    "FROM generate_series(1, ?) g",
+                    USUARIO_PERFIL, COMPLETADAS_PERFIL);
+        // Cada usuario completa POR_USUARIO misiones distintas, repartidas por el catálogo
+        jdbc.update("INSERT INTO misiones_hechas (id_key, id_usuario, id_mision, fecha) " +
+                    "SELECT nextval('misiones_hechas_id_key_seq'), 2 + g / ?, 1 + (g % ?) + ((g / ?) % ?) * ?, now() - (g % 365) * interval '1 day' " +
+                    "FROM generate_series(0, ? - 1) g",
+                    POR_USUARIO, POR_USUARIO, POR_USUARIO, MISIONES / POR_USUARIO, POR_USUARIO, completaciones);
+        jdbc.update("UPDATE usuario u SET exp = t.exp FROM (" +
+                    "SELECT mh.id_usuario, SUM(m.experencia_mision) AS exp FROM misiones_hechas mh " +
+                    "JOIN misiones m ON m.id_mision = mh.id_mision GROUP BY mh.id_usuario) t " +
+                    "WHERE u.id_usuario = t.id_usuario");
+        jdbc.execute("ANALYZE");
+    }
+}
@@ -0,0 +1,26 @@
+package com.api.daily.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+/**
+ * Entorno con el catálogo de misiones y sin historial, para lo que no depende de misiones_hechas
+ */
+@State(Scope.Benchmark)
+public class EntornoCatalogo extends Entorno {
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        arrancar(0);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        parar();
+    }
+}
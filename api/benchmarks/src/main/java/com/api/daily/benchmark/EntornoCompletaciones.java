@@ -0,0 +1,30 @@
+package com.api.daily.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+/**
+ * Entorno con un historial de misiones hechas del tamaño indicado
+ */
+@State(Scope.Benchmark)
+public class EntornoCompletaciones extends Entorno {
+    
+    @Param({"10000", "100000", "1000000"})
+    public int completaciones;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        arrancar(completaciones);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        parar();
+    }
+}
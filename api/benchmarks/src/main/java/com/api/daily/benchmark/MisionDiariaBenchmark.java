@@ -0,0 +1,51 @@
+package com.api.daily.benchmark;
+
+import com.api.daily.model.Mision;
+import com.api.daily.service.MisionDiariaService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MisionDiariaBenchmark {
+    
+    private MisionDiariaService misionDiariaService;
+    
+    @Setup
+    public void setup(EntornoCatalogo entorno) {
+        misionDiariaService = entorno.bean(MisionDiariaService.class);
+    }
+    
+    @Benchmark
+    public List<Mision> getMisionesDiarias() {
+        return misionDiariaService.getMisionesDiarias();
+    }
+    
+    /**
+     * Selección personalizada de un usuario con la mitad del catálogo completado
+     */
+    @Benchmark
+    public List<Mision> getMisionesDiariasUsuario() {
+        return misionDiariaService.getMisionesDiarias(Entorno.USUARIO_PERFIL);
+    }
+    
+    @Benchmark
+    public boolean esMisionDiaria() {
+        return misionDiariaService.esMisionDiaria(42L);
+    }
+    
+    /**
+     * Coste de recalcular la selección, como tras un cambio en el catálogo
+     */
+    @Benchmark
+    public List<Mision> getMisionesDiariasSinCache() {
+        misionDiariaService.invalidarCache();
+        return misionDiariaService.getMisionesDiarias();
+    }
+}
@@ -0,0 +1,84 @@
+package com.api.daily.benchmark;
+
+import com.api.daily.dto.ActividadPeriodo;
+import com.api.daily.dto.MisionCompletadaDTO;
+import com.api.daily.dto.PeriodoActividad;
+import com.api.daily.dto.ResumenActividad;
+import com.api.daily.model.Mision;
+import com.api.daily.model.MisionHecha;
+import com.api.daily.service.MisionHechaService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MisionHechaBenchmark {
+    
+    private EntornoCompletaciones entorno;
+    private MisionHechaService misionHechaService;
+    
+    // Usuario y misión de la siguiente completación nueva
+    private long usuarioNuevo;
+    private long siguienteMision = Entorno.MISIONES + 1;
+    
+    @Setup
+    public void setup(EntornoCompletaciones entorno) {
+        this.entorno = entorno;
+        misionHechaService = entorno.bean(MisionHechaService.class);
+    }
+    
+    /**
+     * Completación que sí se inserta: cada llamada usa un par usuario/misión sin completar
+     */
+    @Benchmark
+    public Optional<MisionHecha> completarMision() {
+        if (siguienteMision > Entorno.MISIONES) {
+            usuarioNuevo = entorno.jdbc.queryForObject(
+                "INSERT INTO usuario (id_usuario, name, passwd, exp) " +
+                "VALUES (nextval('usuario_id_usuario_seq'), 'nuevo' || currval('usuario_id_usuario_seq'), 'passwd', 0) " +
+                "RETURNING id_usuario", Long.class);
+            siguienteMision = 1;
+        }
+        return misionHechaService.completarMision(usuarioNuevo, siguienteMision++, null, null);
+    }
+    
+    /**
+     * Completación rechazada por estar ya hecha
+     */
+    @Benchmark
+    public Optional<MisionHecha> completarMisionRepetida() {
+        return misionHechaService.completarMision(Entorno.USUARIO_PERFIL, 1L, null, null);
+    }
+    
+    @Benchmark
+    public List<Mision> getMisionesCompletadasByUsuario() {
+        return misionHechaService.getMisionesCompletadasByUsuario(Entorno.USUARIO_PERFIL);
+    }
+    
+    @Benchmark
+    public List<MisionCompletadaDTO> getHistorialByUsuario() {
+        return misionHechaService.getHistorialByUsuario(Entorno.USUARIO_PERFIL);
+    }
+    
+    /**
+     * Calendario diario del último año agrupado en la base de datos, frente a getHistorialByUsuario
+     */
+    @Benchmark
+    public List<ActividadPeriodo> getCalendario() {
+        LocalDate hoy = LocalDate.now();
+        return misionHechaService.getCalendario(Entorno.USUARIO_PERFIL, hoy.minusDays(365), hoy, PeriodoActividad.DIA);
+    }
+    
+    @Benchmark
+    public ResumenActividad getResumen() {
+        return misionHechaService.getResumen(Entorno.USUARIO_PERFIL);
+    }
+}
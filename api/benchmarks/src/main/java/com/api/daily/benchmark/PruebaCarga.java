@@ -0,0 +1,127 @@
+package com.api.daily.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prueba de carga en bucle cerrado contra una API arrancada aparte: cada cliente
+ * lanza una petición, espera la respuesta y lanza la siguiente.
+ *
+ * Para comparar los dos modos se arranca la API con y sin
+ * --spring.threads.virtual.enabled=true (sobre Java 21) y se lanza:
+ *
+ *   java -cp target/benchmarks.jar com.api.daily.benchmark.PruebaCarga \
+ *        [url] [clientes] [segundos] [usuarios]
+ *
+ * Las peticiones se reparten entre el usuario, su historial y las misiones diarias,
+ * que es lo que pide la app al abrir cada pantalla.
+ */
+public class PruebaCarga {
+    
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080/api";
+        int clientes = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int segundos = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int usuarios = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        
+        HttpClient cliente = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        Carga carga = new Carga(cliente, url, usuarios);
+        
+        // Calentamiento con pocos clientes para no medir el arranque en frío
+        carga.ejecutar(Math.min(clientes, 50), 5);
+        carga.reiniciar();
+        
+        long inicio = System.nanoTime();
+        carga.ejecutar(clientes, segundos);
+        double transcurrido = (System.nanoTime() - inicio) / 1e9;
+        
+        Histogram latencias = carga.latencias;
+        System.out.printf("clientes=%d tiempo=%.1fs peticiones=%d (%.0f/s)%n",
+            clientes, transcurrido, latencias.getTotalCount(), latencias.getTotalCount() / transcurrido);
+        System.out.printf("latencia ms: p50=%.1f p95=%.1f p99=%.1f max=%.1f%n",
+            latencias.getValueAtPercentile(50) / 1000.0, latencias.getValueAtPercentile(95) / 1000.0,
+            latencias.getValueAtPercentile(99) / 1000.0, latencias.getMaxValue() / 1000.0);
+        System.out.println("respuestas: " + new TreeMap<>(carga.respuestasPorEstado()));
+    }
+    
+    private static final class Carga {
+        
+        private final HttpClient cliente;
+        private final String url;
+        private final int usuarios;
+        
+        final Histogram latencias = new ConcurrentHistogram(3);
+        private final Map<String, LongAdder> estados = new ConcurrentHashMap<>();
+        
+        Carga(HttpClient cliente, String url, int usuarios) {
+            this.cliente = cliente;
+            this.url = url;
+            this.usuarios = usuarios;
+        }
+        
+        void ejecutar(int clientes, int segundos) {
+            long fin = System.nanoTime() + segundos * 1_000_000_000L;
+            CompletableFuture<?>[] bucles = new CompletableFuture<?>[clientes];
+            for (int i = 0; i < clientes; i++) {
+                bucles[i] = bucle(fin);
+            }
+            CompletableFuture.allOf(bucles).join();
+        }
+        
+        void reiniciar() {
+            latencias.reset();
+            estados.clear();
+        }
+        
+        Map<String, Long> respuestasPorEstado() {
+            Map<String, Long> resultado = new TreeMap<>();
+            estados.forEach((estado, n) -> resultado.put(estado, n.sum()));
+            return resultado;
+        }
+        
+        private CompletableFuture<Void> bucle(long fin) {
+            if (System.nanoTime() >= fin) {
+                return CompletableFuture.completedFuture(null);
+            }
+            long inicio = System.nanoTime();
+            return cliente.sendAsync(siguientePeticion(), HttpResponse.BodyHandlers.discarding())
+                .handle((respuesta, error) -> {
+                    latencias.recordValue((System.nanoTime() - inicio) / 1000);
+                    String estado = error != null ? error.getClass().getSimpleName()
+                                                  : String.valueOf(respuesta.statusCode());
+                    estados.computeIfAbsent(estado, e -> new LongAdder()).increment();
+                    return null;
+                })
+                .thenCompose(ignorado -> bucle(fin));
+        }
+        
+        private HttpRequest siguientePeticion() {
+            long idUsuario = 1 + ThreadLocalRandom.current().nextInt(usuarios);
+            List<String> rutas = List.of(
+                "/api/usuarios/" + idUsuario,
+                "/api/misiones-hechas/usuario/" + idUsuario + "/historial",
+                "/api/misiones-diarias");
+            String ruta = rutas.get(ThreadLocalRandom.current().nextInt(rutas.size()));
+            return HttpRequest.newBuilder(URI.create(url + ruta))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.api.daily.benchmark;
+
+import com.api.daily.config.SerializacionConfig;
+import com.api.daily.dto.UsuarioDTO;
+import com.api.daily.model.MisionHecha;
+import com.api.daily.model.Usuario;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización JSON de listas de entidades, con la misma configuración de fechas que Spring Boot,
+ * y de los perfiles que devuelve la API con su serializador registrado
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializacionBenchmark {
+    
+    @Param({"100", "1000"})
+    public int tamano;
+    
+    private ObjectMapper objectMapper;
+    private List<Usuario> usuarios;
+    private List<UsuarioDTO> perfiles;
+    private List<MisionHecha> misionesHechas;
+    
+    @Setup
+    public void setup() {
+        objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .addModule(new SerializacionConfig().serializadoresRespuestas())
+            .build();
+        
+        usuarios = new ArrayList<>(tamano);
+        perfiles = new ArrayList<>(tamano);
+        misionesHechas = new ArrayList<>(tamano);
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 1; i <= tamano; i++) {
+            Usuario usuario = new Usuario("usuario" + i, "passwd");
+            usuario.setIdUsuario((long) i);
+            usuario.setExp(i * 10);
+            usuario.setFoto("68082d941ae4ffec00bc9568608c5ba42a47722f4be394e76039d355a3098c93");
+            usuarios.add(usuario);
+            perfiles.add(new UsuarioDTO(usuario.getIdUsuario(), usuario.getName(), usuario.getExp(),
+                                        usuario.getFoto(), i / 10, i % 10 * 10, (i / 10 + 1) * 100L));
+            
+            MisionHecha misionHecha = new MisionHecha((long) i, (long) (i % 100 + 1),
+                "68082d941ae4ffec00bc9568608c5ba42a47722f4be394e76039d355a3098c93");
+            misionHecha.setIdKey((long) i);
+            misionHecha.setFecha(ahora.minusHours(i));
+            misionesHechas.add(misionHecha);
+        }
+    }
+    
+    @Benchmark
+    public byte[] serializarUsuarios() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(usuarios);
+    }
+    
+    @Benchmark
+    public byte[] serializarPerfiles() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(perfiles);
+    }
+    
+    @Benchmark
+    public byte[] serializarMisionesHechas() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(misionesHechas);
+    }
+}
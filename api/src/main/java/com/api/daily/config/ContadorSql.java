@@ -0,0 +1,134 @@
+package com.api.daily.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Cuenta las sentencias SQL ejecutadas durante cada petición y las publica como
+ * sql.sentencias por método de controlador, para detectar N+1. Se cuenta en las
+ * conexiones del DataSource (ver contar), así que incluye Hibernate, JdbcTemplate y
+ * cualquier otro acceso; un lote (executeBatch) cuenta como una sentencia.
+ * Además registra en DEBUG (logger com.api.daily.sql) una muestra de las sentencias.
+ */
+@Component
+public class ContadorSql implements HandlerInterceptor {
+    
+    private static final Logger logSql = LoggerFactory.getLogger("com.api.daily.sql");
+    
+    private static final ThreadLocal<int[]> sentencias = new ThreadLocal<>();
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Fracción de sentencias que se registran, entre 0 y 1
+    @Value("${sql.log.muestreo:0}")
+    private double muestreo;
+    
+    /**
+     * DataSource que cuenta cada ejecución de las sentencias de sus conexiones
+     */
+    public DataSource contar(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return conexion(super.getConnection());
+            }
+            
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return conexion(super.getConnection(username, password));
+            }
+        };
+    }
+    
+    void registrar(String sql) {
+        int[] contador = sentencias.get();
+        if (contador != null) {
+            contador[0]++;
+        }
+        if (sql != null && muestreo > 0 && logSql.isDebugEnabled()
+                && ThreadLocalRandom.current().nextDouble() < muestreo) {
+            logSql.debug(sql);
+        }
+    }
+    
+    // Las sentencias que crea la conexión se envuelven para contar sus execute*
+    private Connection conexion(Connection conexion) {
+        return envolver(Connection.class, conexion, (proxy, metodo, args) -> {
+            Object resultado = invocar(conexion, metodo, args);
+            if (resultado instanceof Statement sentencia && Statement.class.isAssignableFrom(metodo.getReturnType())) {
+                return sentencia(metodo.getReturnType(), sentencia, sql(args));
+            }
+            return resultado;
+        });
+    }
+    
+    // sql es el de prepareStatement/prepareCall; con createStatement llega en cada execute
+    private <T> T sentencia(Class<T> tipo, Object sentencia, String sql) {
+        return envolver(tipo, tipo.cast(sentencia), (proxy, metodo, args) -> {
+            if (metodo.getName().startsWith("execute")) {
+                registrar(sql != null ? sql : sql(args));
+            }
+            return invocar(sentencia, metodo, args);
+        });
+    }
+    
+    // El SQL es el primer argumento de prepareStatement, prepareCall y Statement.execute*
+    private static String sql(Object[] args) {
+        return args != null && args.length > 0 && args[0] instanceof String sql ? sql : null;
+    }
+    
+    private static <T> T envolver(Class<T> tipo, T objetivo, InvocationHandler manejador) {
+        return tipo.cast(Proxy.newProxyInstance(ContadorSql.class.getClassLoader(), new Class<?>[] { tipo }, manejador));
+    }
+    
+    private static Object invocar(Object objetivo, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(objetivo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            sentencias.set(new int[1]);
+        }
+        return true;
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        int[] contador = sentencias.get();
+        sentencias.remove();
+        if (contador != null && handler instanceof HandlerMethod metodo) {
+            DistributionSummary.builder("sql.sentencias")
+                .description("Sentencias SQL por petición")
+                .tag("controlador", MetricasConfig.nombre(metodo))
+                .register(meterRegistry)
+                .record(contador[0]);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.api.daily.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Modo de hilos virtuales: se activa con spring.threads.virtual.enabled=true sobre Java 21.
+ * Spring Boot pasa Tomcat, las tareas asíncronas y las programadas a hilos virtuales;
+ * aquí se añade el límite de peticiones concurrentes, que junto con el pool de Hikari
+ * es lo que acota la carga sobre PostgreSQL.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class HilosVirtualesConfig {
+    
+    @Bean
+    public FilterRegistrationBean<LimiteConcurrencia> limiteConcurrencia(
+            @Value("${peticiones.concurrentes.maximo:20}") int maximo,
+            @Value("${peticiones.concurrentes.espera-ms:2000}") long esperaMs,
+            MeterRegistry meterRegistry) {
+        FilterRegistrationBean<LimiteConcurrencia> registro =
+            new FilterRegistrationBean<>(new LimiteConcurrencia(maximo, esperaMs, meterRegistry));
+        // Solo la API: /actuator debe responder aunque la API esté saturada
+        registro.addUrlPatterns("/api/*");
+        return registro;
+    }
+}
@@ -0,0 +1,60 @@
+package com.api.daily.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita las peticiones a la API que se atienden a la vez.
+ * Con hilos virtuales no hay un pool de hilos que frene la entrada, así que sin
+ * este límite miles de peticiones acabarían esperando conexión en Hikari hasta
+ * agotar su timeout. Las que no consiguen turno a tiempo reciben 503.
+ */
+public class LimiteConcurrencia extends OncePerRequestFilter {
+    
+    private final Semaphore turnos;
+    private final int maximo;
+    private final long esperaMs;
+    private final Counter rechazadas;
+    
+    public LimiteConcurrencia(int maximo, long esperaMs, MeterRegistry meterRegistry) {
+        this.turnos = new Semaphore(maximo, true);
+        this.maximo = maximo;
+        this.esperaMs = esperaMs;
+        this.rechazadas = meterRegistry.counter("peticiones.rechazadas");
+        meterRegistry.gauge("peticiones.en.curso", turnos, s -> this.maximo - s.availablePermits());
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        boolean conTurno;
+        try {
+            conTurno = turnos.tryAcquire(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            conTurno = false;
+        }
+        if (!conTurno) {
+            rechazadas.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            turnos.release();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.api.daily.config;
+
+import io.micrometer.common.KeyValues;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Métricas propias: método de controlador en http.server.requests y sentencias SQL por petición
+ */
+@Configuration
+public class MetricasConfig implements WebMvcConfigurer {
+    
+    private final ContadorSql contadorSql;
+    
+    public MetricasConfig(ContadorSql contadorSql) {
+        this.contadorSql = contadorSql;
+    }
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(contadorSql);
+    }
+    
+    /**
+     * Envuelve el DataSource con ContadorSql. Es estático y recibe el contador como
+     * ObjectProvider para no adelantar la creación de ContadorSql y del MeterRegistry.
+     */
+    @Bean
+    public static BeanPostProcessor contadorSqlDataSource(ObjectProvider<ContadorSql> contadorSql) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String nombre) {
+                return bean instanceof DataSource dataSource ? contadorSql.getObject().contar(dataSource) : bean;
+            }
+        };
+    }
+    
+    /**
+     * Añade a http.server.requests la etiqueta controlador (p. ej. UsuarioController.getUsuarioById)
+     */
+    @Bean
+    public ServerRequestObservationConvention observacionPeticiones() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                Object handler = context.getCarrier().getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+                String controlador = handler instanceof HandlerMethod metodo ? nombre(metodo) : "none";
+                return super.getLowCardinalityKeyValues(context).and("controlador", controlador);
+            }
+        };
+    }
+    
+    static String nombre(HandlerMethod metodo) {
+        return metodo.getBeanType().getSimpleName() + "." + metodo.getMethod().getName();
+    }
+}
@@ -0,0 +1,61 @@
+package com.api.daily.config;
+
+import com.api.daily.dto.UsuarioDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.io.IOException;
+
+/**
+ * Serializadores registrados de antemano para las respuestas más frecuentes.
+ * Escriben los campos directamente, sin introspección, con los nombres ya codificados.
+ */
+@Configuration
+public class SerializacionConfig {
+    
+    @Bean
+    public Module serializadoresRespuestas() {
+        return new SimpleModule("respuestas")
+            .addSerializer(UsuarioDTO.class, new UsuarioSerializer());
+    }
+    
+    static final class UsuarioSerializer extends StdSerializer<UsuarioDTO> {
+        
+        private static final SerializedString ID_USUARIO = new SerializedString("idUsuario");
+        private static final SerializedString NAME = new SerializedString("name");
+        private static final SerializedString EXP = new SerializedString("exp");
+        private static final SerializedString FOTO = new SerializedString("foto");
+        private static final SerializedString NIVEL = new SerializedString("nivel");
+        private static final SerializedString PROGRESO = new SerializedString("progreso");
+        private static final SerializedString EXP_SIGUIENTE_NIVEL = new SerializedString("expSiguienteNivel");
+        
+        UsuarioSerializer() {
+            super(UsuarioDTO.class);
+        }
+        
+        @Override
+        public void serialize(UsuarioDTO usuario, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(usuario);
+            gen.writeFieldName(ID_USUARIO);
+            gen.writeNumber(usuario.idUsuario());
+            gen.writeFieldName(NAME);
+            gen.writeString(usuario.name());
+            gen.writeFieldName(EXP);
+            gen.writeNumber(usuario.exp());
+            gen.writeFieldName(FOTO);
+            gen.writeString(usuario.foto());
+            gen.writeFieldName(NIVEL);
+            gen.writeNumber(usuario.nivel());
+            gen.writeFieldName(PROGRESO);
+            gen.writeNumber(usuario.progreso());
+            gen.writeFieldName(EXP_SIGUIENTE_NIVEL);
+            gen.writeNumber(usuario.expSiguienteNivel());
+            gen.writeEndObject();
+        }
+    }
+}
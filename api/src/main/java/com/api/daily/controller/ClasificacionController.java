@@ -0,0 +1,68 @@
+package com.api.daily.controller;
+
+import com.api.daily.dto.PosicionDTO;
+import com.api.daily.service.ClasificacionService;
+import com.api.daily.service.ClasificacionService.Periodo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/clasificacion")
+public class ClasificacionController {
+    
+    private static final int LIMITE_MAXIMO = 100;
+    
+    @Autowired
+    private ClasificacionService clasificacionService;
+    
+    /**
+     * Obtiene los primeros de la clasificación
+     * @param periodo total, semanal o diaria
+     * @param limit Número de posiciones a devolver
+     * @return Lista ordenada de posiciones
+     */
+    @GetMapping("/{periodo}")
+    public ResponseEntity<List<PosicionDTO>> getTop(
+            @PathVariable String periodo,
+            @RequestParam(defaultValue = "10") int limit) {
+        Optional<Periodo> p = parsePeriodo(periodo);
+        if (p.isEmpty() || limit <= 0 || limit > LIMITE_MAXIMO) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        return ResponseEntity.ok(clasificacionService.getTop(p.get(), limit));
+    }
+    
+    /**
+     * Obtiene la posición de un usuario en la clasificación
+     * @param periodo total, semanal o diaria
+     * @param idUsuario ID del usuario
+     * @return Posición del usuario, 404 si no aparece
+     */
+    @GetMapping("/{periodo}/usuario/{idUsuario}")
+    public ResponseEntity<PosicionDTO> getPosicion(
+            @PathVariable String periodo,
+            @PathVariable Long idUsuario) {
+        Optional<Periodo> p = parsePeriodo(periodo);
+        if (p.isEmpty() || idUsuario == null || idUsuario <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        return clasificacionService.getPosicion(p.get(), idUsuario)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    private static Optional<Periodo> parsePeriodo(String periodo) {
+        try {
+            return Optional.of(Periodo.valueOf(periodo.toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
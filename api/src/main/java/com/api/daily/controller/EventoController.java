@@ -0,0 +1,30 @@
+package com.api.daily.controller;
+
+import com.api.daily.service.NotificadorEventos;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/eventos")
+public class EventoController {
+    
+    @Autowired
+    private NotificadorEventos notificadorEventos;
+    
+    /**
+     * Conexión Server-Sent Events con las misiones diarias y, si se indica usuario,
+     * sus completaciones. El cliente debe reconectar si se cierra.
+     * @param idUsuario Opcional: usuario del que recibir las completaciones
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> suscribir(@RequestParam(required = false) Long idUsuario) {
+        if (idUsuario != null && idUsuario <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        return ResponseEntity.ok(notificadorEventos.suscribir(idUsuario));
+    }
+}
@@ -0,0 +1,107 @@
+package com.api.daily.controller;
+
+import com.api.daily.service.FotoService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/fotos")
+public class FotoController {
+    
+    @Autowired
+    private FotoService fotoService;
+    
+    /**
+     * Sube una foto
+     * @param foto Fichero de la foto (multipart), una imagen JPEG, PNG o GIF
+     * @return Referencia de la foto para usarla en misiones hechas o usuarios
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, String>> subirFoto(@RequestPart("foto") MultipartFile foto) throws IOException {
+        if (foto == null || foto.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        try (InputStream entrada = foto.getInputStream()) {
+            return fotoService.guardar(entrada)
+                .map(referencia -> ResponseEntity.status(HttpStatus.CREATED).body(Map.of("foto", referencia)))
+                .orElse(ResponseEntity.badRequest().build());
+        }
+    }
+    
+    /**
+     * Descarga una foto. Admite If-None-Match (la ETag identifica el fichero servido) y un rango de bytes.
+     * @param referencia Hash de la foto
+     * @param size Lado mayor en píxeles con el que se va a mostrar; se sirve la miniatura que lo cubra
+     */
+    @GetMapping("/{referencia}")
+    public void getFoto(@PathVariable String referencia,
+                        @RequestParam(required = false) Integer size,
+                        @RequestHeader HttpHeaders cabeceras,
+                        HttpServletResponse response) throws IOException {
+        if (size != null && size <= 0) {
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        
+        Optional<Path> ruta = size != null ? fotoService.getRuta(referencia, size) : fotoService.getRuta(referencia);
+        if (ruta.isEmpty()) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        
+        // El contenido de un fichero (original o miniatura) nunca cambia, pero si se pide un
+        // tamaño y aún no hay miniatura la URL pasará a servir otro fichero: se revalida con la ETag
+        String etag = "\"" + ruta.get().getFileName() + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, size != null && fotoService.esProvisional(ruta.get())
+            ? "no-cache" : "public, max-age=31536000, immutable");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // El navegador no debe interpretar la foto como otro tipo que el enviado
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        if (cabeceras.getIfNoneMatch().contains(etag) || cabeceras.getIfNoneMatch().contains("*")) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        
+        long tamano = Files.size(ruta.get());
+        long inicio = 0;
+        long fin = tamano - 1;
+        List<HttpRange> rangos;
+        try {
+            rangos = cabeceras.getRange();
+        } catch (IllegalArgumentException e) {
+            rangos = List.of();
+        }
+        if (rangos.size() == 1) {
+            inicio = rangos.get(0).getRangeStart(tamano);
+            fin = rangos.get(0).getRangeEnd(tamano);
+            if (inicio >= tamano || inicio > fin) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamano);
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + tamano);
+        }
+        
+        long longitud = fin - inicio + 1;
+        response.setContentType(fotoService.getTipo(ruta.get()));
+        response.setContentLengthLong(longitud);
+        fotoService.enviar(ruta.get(), inicio, longitud, response.getOutputStream());
+    }
+}
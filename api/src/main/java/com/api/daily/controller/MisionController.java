@@ -1,25 +1,47 @@
 package com.api.daily.controller;
 
+import com.api.daily.dto.PaginaDTO;
 import com.api.daily.model.Mision;
+import com.api.daily.service.BusquedaMisionService;
+import com.api.daily.service.CatalogoMisiones;
 import com.api.daily.service.MisionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/misiones")
 public class MisionController {
     
+    private static final int LIMITE_MAXIMO = 100;
+    
     @Autowired
     private MisionService misionService;
     
+    @Autowired
+    private BusquedaMisionService busquedaMisionService;
+    
+    @Autowired
+    private CatalogoMisiones catalogoMisiones;
+    
+    /**
+     * Catálogo completo, servido desde el JSON precalculado.
+     * Con If-None-Match igual a la ETag actual responde 304 sin cuerpo.
+     */
     @GetMapping
-    public ResponseEntity<List<Mision>> getAllMisiones() {
-        List<Mision> misiones = misionService.getAllMisiones();
-        return ResponseEntity.ok(misiones);
+    public ResponseEntity<byte[]> getAllMisiones(WebRequest request) {
+        CatalogoMisiones.Catalogo catalogo = catalogoMisiones.getCatalogo();
+        if (request.checkNotModified(catalogo.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+            .eTag(catalogo.etag())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(catalogo.json());
     }
     
     @GetMapping("/{id}")
@@ -34,19 +56,25 @@ public class MisionController {
     }
     
     @GetMapping("/buscar")
-    public ResponseEntity<List<Mision>> searchMisiones(@RequestParam String titulo) {
-        if (titulo == null || titulo.trim().isEmpty()) {
+    public ResponseEntity<PaginaDTO<Mision>> searchMisiones(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (q == null || q.trim().isEmpty() || limit <= 0 || limit > LIMITE_MAXIMO) {
             return ResponseEntity.badRequest().build();
         }
         
-        List<Mision> misiones = misionService.searchMisionesByTitulo(titulo);
-        return ResponseEntity.ok(misiones);
+        try {
+            return ResponseEntity.ok(busquedaMisionService.buscar(q, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @PostMapping
     public ResponseEntity<Mision> createMision(@RequestBody Mision mision) {
         if (mision == null || mision.getTituloMision() == null || 
-            mision.getTituloMision().trim().isEmpty()) {
+            mision.getTituloMision().trim().isEmpty() || (mision.getPeso() != null && mision.getPeso() < 0)) {
             return ResponseEntity.badRequest().build();
         }
         
@@ -56,7 +84,7 @@ public class MisionController {
     
     @PutMapping("/{id}")
     public ResponseEntity<Mision> updateMision(@PathVariable Long id, @RequestBody Mision mision) {
-        if (id == null || id <= 0 || mision == null) {
+        if (id == null || id <= 0 || mision == null || (mision.getPeso() != null && mision.getPeso() < 0)) {
             return ResponseEntity.badRequest().build();
         }
         
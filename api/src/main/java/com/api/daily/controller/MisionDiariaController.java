@@ -1,12 +1,15 @@
 package com.api.daily.controller;
 
 import com.api.daily.model.Mision;
+import com.api.daily.service.CatalogoMisiones;
 import com.api.daily.service.MisionDiariaService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/misiones-diarias")
@@ -15,29 +18,58 @@ public class MisionDiariaController {
     @Autowired
     private MisionDiariaService misionDiariaService;
     
+    @Autowired
+    private CatalogoMisiones catalogoMisiones;
+    
     /**
      * Obtiene las 3 misiones diarias del día actual
-     * Todos los usuarios ven las mismas misiones para el mismo día
+     * Sin usuario todos ven las mismas misiones para el mismo día, así que la
+     * ETag solo depende de la fecha y de la versión del catálogo
+     * @param idUsuario Opcional: sustituye las misiones que el usuario ya completó
      * @return Lista de 3 misiones diarias
      */
     @GetMapping
-    public ResponseEntity<List<Mision>> getMisionesDiarias() {
-        List<Mision> misionesDiarias = misionDiariaService.getMisionesDiarias();
-        return ResponseEntity.ok(misionesDiarias);
+    public ResponseEntity<List<Mision>> getMisionesDiarias(@RequestParam(required = false) Long idUsuario,
+                                                           WebRequest request) {
+        if (idUsuario != null && idUsuario <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        String etag = misionDiariaService.getHoy() + "-" + catalogoMisiones.getCatalogo().hash();
+        if (idUsuario == null) {
+            etag = "W/\"" + etag + "\"";
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+            return ResponseEntity.ok().eTag(etag).body(misionDiariaService.getMisionesDiarias());
+        }
+        
+        // La selección personalizada sale de memoria; la ETag incluye las misiones elegidas
+        List<Mision> misionesDiarias = misionDiariaService.getMisionesDiarias(idUsuario);
+        etag = "W/\"" + etag + "-" + misionesDiarias.stream()
+            .map(m -> String.valueOf(m.getIdMision())).collect(Collectors.joining(".")) + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(misionesDiarias);
     }
     
     /**
      * Verifica si una misión específica es una misión diaria de hoy
      * @param idMision ID de la misión a verificar
+     * @param idUsuario Opcional: comprueba las misiones diarias personalizadas del usuario
      * @return true si es misión diaria, false en caso contrario
      */
     @GetMapping("/verificar/{idMision}")
-    public ResponseEntity<Boolean> verificarMisionDiaria(@PathVariable Long idMision) {
-        if (idMision == null || idMision <= 0) {
+    public ResponseEntity<Boolean> verificarMisionDiaria(@PathVariable Long idMision,
+                                                         @RequestParam(required = false) Long idUsuario) {
+        if (idMision == null || idMision <= 0 || (idUsuario != null && idUsuario <= 0)) {
             return ResponseEntity.badRequest().build();
         }
         
-        boolean esDiaria = misionDiariaService.esMisionDiaria(idMision);
+        boolean esDiaria = idUsuario == null
+            ? misionDiariaService.esMisionDiaria(idMision)
+            : misionDiariaService.esMisionDiaria(idMision, idUsuario);
         return ResponseEntity.ok(esDiaria);
     }
 }
\ No newline at end of file
@@ -1,26 +1,78 @@
 package com.api.daily.controller;
 
+import com.api.daily.dto.ActividadPeriodo;
+import com.api.daily.dto.CompletacionOffline;
+import com.api.daily.dto.MisionCompletadaDTO;
+import com.api.daily.dto.PaginaDTO;
+import com.api.daily.dto.PeriodoActividad;
+import com.api.daily.dto.ResultadoSincronizacion;
+import com.api.daily.dto.ResumenActividad;
+import com.api.daily.dto.VersionHistorial;
 import com.api.daily.model.Mision;
 import com.api.daily.model.MisionHecha;
+import com.api.daily.service.CatalogoMisiones;
+import com.api.daily.service.FotoService;
+import com.api.daily.service.MisionDiariaService;
 import com.api.daily.service.MisionHechaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/misiones-hechas")
 public class MisionHechaController {
     
+    private static final int LIMITE_MAXIMO = 500;
+    private static final int MAXIMO_PERIODOS = 366;
+    
     @Autowired
     private MisionHechaService misionHechaService;
     
+    @Autowired
+    private FotoService fotoService;
+    
+    @Autowired
+    private CatalogoMisiones catalogoMisiones;
+    
+    @Autowired
+    private MisionDiariaService misionDiariaService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @GetMapping
-    public ResponseEntity<List<MisionHecha>> getAllMisionesHechas() {
-        List<MisionHecha> misionesHechas = misionHechaService.getAllMisionesHechas();
-        return ResponseEntity.ok(misionesHechas);
+    public ResponseEntity<PaginaDTO<MisionHecha>> getAllMisionesHechas(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit <= 0 || limit > LIMITE_MAXIMO) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        try {
+            return ResponseEntity.ok(misionHechaService.getMisionesHechas(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping(params = Ndjson.FORMATO)
+    public ResponseEntity<StreamingResponseBody> exportarMisionesHechas() {
+        StreamingResponseBody cuerpo = out ->
+            misionHechaService.exportarMisionesHechas(null, Ndjson.escritor(objectMapper, out));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(cuerpo);
     }
     
     @GetMapping("/{id}")
@@ -35,37 +87,80 @@ public class MisionHechaController {
     }
     
     @GetMapping("/usuario/{idUsuario}")
-    public ResponseEntity<List<MisionHecha>> getMisionesHechasByUsuario(@PathVariable Long idUsuario) {
+    public ResponseEntity<List<MisionHecha>> getMisionesHechasByUsuario(@PathVariable Long idUsuario,
+                                                                        WebRequest request) {
         if (idUsuario == null || idUsuario <= 0) {
             return ResponseEntity.badRequest().build();
         }
         
+        String etag = etagHistorial(idUsuario, false);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<MisionHecha> misionesHechas = misionHechaService.getMisionesHechasByUsuario(idUsuario);
-        return ResponseEntity.ok(misionesHechas);
+        return ResponseEntity.ok().eTag(etag).body(misionesHechas);
     }
     
     @GetMapping("/mision/{idMision}")
-    public ResponseEntity<List<MisionHecha>> getMisionesHechasByMision(@PathVariable Long idMision) {
+    public ResponseEntity<PaginaDTO<MisionHecha>> getMisionesHechasByMision(
+            @PathVariable Long idMision,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (idMision == null || idMision <= 0 || limit <= 0 || limit > LIMITE_MAXIMO) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        try {
+            return ResponseEntity.ok(misionHechaService.getMisionesHechasByMision(idMision, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping(value = "/mision/{idMision}", params = Ndjson.FORMATO)
+    public ResponseEntity<StreamingResponseBody> exportarMisionesHechasByMision(@PathVariable Long idMision) {
         if (idMision == null || idMision <= 0) {
             return ResponseEntity.badRequest().build();
         }
         
-        List<MisionHecha> misionesHechas = misionHechaService.getMisionesHechasByMision(idMision);
-        return ResponseEntity.ok(misionesHechas);
+        StreamingResponseBody cuerpo = out ->
+            misionHechaService.exportarMisionesHechas(idMision, Ndjson.escritor(objectMapper, out));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(cuerpo);
     }
     
     @PostMapping("/completar")
     public ResponseEntity<MisionHecha> completarMision(
             @RequestParam Long idUsuario,
             @RequestParam Long idMision,
-            @RequestParam(required = false) String fotoMision) {
+            @RequestParam(required = false) String fotoMision,
+            @RequestPart(value = "foto", required = false) MultipartFile foto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia) throws IOException {
         
         if (idUsuario == null || idUsuario <= 0 || idMision == null || idMision <= 0) {
             return ResponseEntity.badRequest().build();
         }
+        if (claveIdempotencia != null && (claveIdempotencia.isBlank() || claveIdempotencia.length() > 100)) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        // La foto llega como fichero o como referencia a una foto ya subida
+        if (foto != null && !foto.isEmpty()) {
+            Optional<String> referencia;
+            try (InputStream entrada = foto.getInputStream()) {
+                referencia = fotoService.guardar(entrada);
+            }
+            if (referencia.isEmpty()) {
+                return ResponseEntity.badRequest().build();
+            }
+            fotoMision = referencia.get();
+        } else if (fotoMision != null && fotoMision.isBlank()) {
+            fotoMision = null;
+        } else if (fotoMision != null && !fotoService.esReferencia(fotoMision)) {
+            return ResponseEntity.badRequest().build();
+        }
         
         Optional<MisionHecha> misionHecha = misionHechaService.completarMision(
-            idUsuario, idMision, fotoMision);
+            idUsuario, idMision, fotoMision, claveIdempotencia);
         
         if (misionHecha.isPresent()) {
             return ResponseEntity.status(HttpStatus.CREATED).body(misionHecha.get());
@@ -74,6 +169,21 @@ public class MisionHechaController {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
     }
     
+    /**
+     * Sincroniza las misiones completadas sin conexión
+     * @return Estado de cada completación, en el mismo orden que se enviaron
+     */
+    @PostMapping("/sincronizar")
+    public ResponseEntity<List<ResultadoSincronizacion>> sincronizar(
+            @RequestBody List<CompletacionOffline> completaciones) {
+        if (completaciones == null || completaciones.isEmpty() || completaciones.size() > LIMITE_MAXIMO
+                || completaciones.contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        return ResponseEntity.ok(misionHechaService.sincronizar(completaciones));
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteMisionHecha(@PathVariable Long id) {
         if (id == null || id <= 0) {
@@ -88,12 +198,113 @@ public class MisionHechaController {
     }
 
     @GetMapping("/usuario/{idUsuario}/detalles")
-    public ResponseEntity<List<Mision>> getMisionesCompletadasConDetalles(@PathVariable Long idUsuario) {
+    public ResponseEntity<List<Mision>> getMisionesCompletadasConDetalles(@PathVariable Long idUsuario,
+                                                                         WebRequest request) {
     if (idUsuario == null || idUsuario <= 0) {
         return ResponseEntity.badRequest().build();
     }
     
+    String etag = etagHistorial(idUsuario, true);
+    if (request.checkNotModified(etag)) {
+        return null;
+    }
     List<Mision> misiones = misionHechaService.getMisionesCompletadasByUsuario(idUsuario);
-    return ResponseEntity.ok(misiones);
+    return ResponseEntity.ok().eTag(etag).body(misiones);
+    }
+
+    @GetMapping("/usuario/{idUsuario}/historial")
+    public ResponseEntity<List<MisionCompletadaDTO>> getHistorialUsuario(@PathVariable Long idUsuario,
+                                                                        WebRequest request) {
+        if (idUsuario == null || idUsuario <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        String etag = etagHistorial(idUsuario, true);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<MisionCompletadaDTO> historial = misionHechaService.getHistorialByUsuario(idUsuario);
+        return ResponseEntity.ok().eTag(etag).body(historial);
+    }
+    
+    /**
+     * Calendario de actividad del usuario: misiones hechas y experiencia por día, semana o mes
+     * @param desde Primer día (por defecto, 29 días antes de hasta)
+     * @param hasta Último día (por defecto, hoy)
+     * @param periodo dia, semana o mes
+     */
+    @GetMapping("/usuario/{idUsuario}/calendario")
+    public ResponseEntity<List<ActividadPeriodo>> getCalendario(
+            @PathVariable Long idUsuario,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "dia") String periodo,
+            WebRequest request) {
+        if (idUsuario == null || idUsuario <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        PeriodoActividad agrupacion;
+        try {
+            agrupacion = PeriodoActividad.valueOf(periodo.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (hasta == null) {
+            hasta = misionDiariaService.getHoy();
+        }
+        if (desde == null) {
+            desde = hasta.minusDays(29);
+        }
+        // La respuesta queda acotada por el número de periodos, no por el de filas
+        if (desde.isAfter(hasta) || agrupacion.getChronoUnit().between(desde, hasta) >= MAXIMO_PERIODOS) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        String etag = etagHistorial(idUsuario, true, desde + "-" + hasta + "-" + agrupacion);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<ActividadPeriodo> calendario = misionHechaService.getCalendario(idUsuario, desde, hasta, agrupacion);
+        return ResponseEntity.ok().eTag(etag).body(calendario);
+    }
+    
+    /**
+     * Totales del historial del usuario: misiones hechas, experiencia y días con actividad
+     */
+    @GetMapping("/usuario/{idUsuario}/resumen")
+    public ResponseEntity<ResumenActividad> getResumen(@PathVariable Long idUsuario, WebRequest request) {
+        if (idUsuario == null || idUsuario <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        String etag = etagHistorial(idUsuario, true);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(misionHechaService.getResumen(idUsuario));
+    }
+    
+    /**
+     * ETag (débil, para que la respuesta se pueda comprimir) de las misiones
+     * hechas de un usuario, calculada sin cargarlas
+     * @param conMisiones Si la respuesta incluye datos del catálogo, que también la invalidan
+     */
+    private String etagHistorial(Long idUsuario, boolean conMisiones) {
+        return etagHistorial(idUsuario, conMisiones, null);
+    }
+    
+    /**
+     * @param parametros Parámetros de la consulta que cambian la respuesta, o null
+     */
+    private String etagHistorial(Long idUsuario, boolean conMisiones, String parametros) {
+        VersionHistorial version = misionHechaService.getVersionHistorial(idUsuario);
+        String etag = idUsuario + "-" + version.completadas() + "-" + version.ultimoIdKey();
+        if (conMisiones) {
+            etag += "-" + catalogoMisiones.getCatalogo().hash();
+        }
+        if (parametros != null) {
+            etag += "-" + parametros;
+        }
+        return "W/\"" + etag + "\"";
     }
 }
\ No newline at end of file
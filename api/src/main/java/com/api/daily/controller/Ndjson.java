@@ -0,0 +1,28 @@
+package com.api.daily.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Escritura de respuestas NDJSON: un objeto JSON por línea, según se van leyendo
+ */
+final class Ndjson {
+    
+    static final String FORMATO = "formato=ndjson";
+    
+    private Ndjson() {}
+    
+    static <T> Consumer<T> escritor(ObjectMapper objectMapper, OutputStream out) {
+        return fila -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(fila));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+}
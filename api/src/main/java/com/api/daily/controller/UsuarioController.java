@@ -1,73 +1,183 @@
 package com.api.daily.controller;
 
+import com.api.daily.dto.CredencialesDTO;
+import com.api.daily.dto.PaginaDTO;
+import com.api.daily.dto.RachaDTO;
+import com.api.daily.dto.UsuarioDTO;
 import com.api.daily.model.Usuario;
+import com.api.daily.service.FotoService;
+import com.api.daily.service.RachaService;
 import com.api.daily.service.UsuarioService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZoneId;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/usuarios")
 public class UsuarioController {
     
+    private static final int LIMITE_MAXIMO = 500;
+    private static final String INDICE_NOMBRE = "uk_usuario_nombre";
+    
     @Autowired
     private UsuarioService usuarioService;
     
+    @Autowired
+    private FotoService fotoService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private RachaService rachaService;
+    
     @GetMapping
-    public ResponseEntity<List<Usuario>> getAllUsuarios() {
-        List<Usuario> usuarios = usuarioService.getAllUsuarios();
-        return ResponseEntity.ok(usuarios);
+    public ResponseEntity<PaginaDTO<UsuarioDTO>> getAllUsuarios(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit <= 0 || limit > LIMITE_MAXIMO) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        try {
+            return ResponseEntity.ok(usuarioService.getUsuarios(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping(params = Ndjson.FORMATO)
+    public ResponseEntity<StreamingResponseBody> exportarUsuarios() {
+        StreamingResponseBody cuerpo = out ->
+            usuarioService.exportarUsuarios(Ndjson.escritor(objectMapper, out));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(cuerpo);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Usuario> getUsuarioById(@PathVariable Long id) {
+    public ResponseEntity<UsuarioDTO> getUsuarioById(@PathVariable Long id, WebRequest request) {
         if (id == null || id <= 0) {
             return ResponseEntity.badRequest().build();
         }
         
         Optional<Usuario> usuario = usuarioService.getUsuarioById(id);
-        return usuario.map(ResponseEntity::ok)
-                     .orElse(ResponseEntity.notFound().build());
+        if (usuario.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return condicional(usuario.get(), request);
+    }
+    
+    @GetMapping("/{id}/racha")
+    public ResponseEntity<RachaDTO> getRachaUsuario(@PathVariable Long id) {
+        if (id == null || id <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        Optional<RachaDTO> racha = rachaService.getRacha(id);
+        if (racha.isPresent()) {
+            return ResponseEntity.ok(racha.get());
+        }
+        if (usuarioService.getUsuarioById(id).isPresent()) {
+            return ResponseEntity.ok(new RachaDTO(id, 0, 0, null));
+        }
+        return ResponseEntity.notFound().build();
     }
     
     @GetMapping("/buscar/{name}")
-    public ResponseEntity<Usuario> getUsuarioByName(@PathVariable String name) {
+    public ResponseEntity<UsuarioDTO> getUsuarioByName(@PathVariable String name, WebRequest request) {
         if (name == null || name.trim().isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
         
         Optional<Usuario> usuario = usuarioService.getUsuarioByName(name);
-        return usuario.map(ResponseEntity::ok)
-                     .orElse(ResponseEntity.notFound().build());
+        if (usuario.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return condicional(usuario.get(), request);
+    }
+    
+    /**
+     * Comprueba la contraseña en el servidor; las respuestas nunca la incluyen
+     * @return Perfil del usuario, 401 si el nombre o la contraseña no son correctos
+     */
+    @PostMapping("/login")
+    public ResponseEntity<UsuarioDTO> login(@RequestBody CredencialesDTO credenciales) {
+        if (credenciales == null || credenciales.name() == null || credenciales.name().trim().isEmpty()
+                || credenciales.passwd() == null || credenciales.passwd().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        return usuarioService.autenticar(credenciales.name(), credenciales.passwd())
+            .map(usuario -> ResponseEntity.ok(usuarioService.perfil(usuario)))
+            .orElse(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
     }
     
     @PostMapping
-    public ResponseEntity<Usuario> createUsuario(@RequestBody Usuario usuario) {
+    public ResponseEntity<UsuarioDTO> createUsuario(@RequestBody Usuario usuario) {
         if (usuario == null || usuario.getName() == null || 
             usuario.getName().trim().isEmpty() || usuario.getPasswd() == null ||
             usuario.getPasswd().trim().isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
         
-        if (usuarioService.existsByName(usuario.getName())) {
-            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        // El nombre es único sin distinguir mayúsculas: si ya existe la inserción falla
+        try {
+            Usuario nuevoUsuario = usuarioService.createUsuario(usuario);
+            return ResponseEntity.status(HttpStatus.CREATED).body(usuarioService.perfil(nuevoUsuario));
+        } catch (DataIntegrityViolationException e) {
+            return rechazar(e);
         }
-        
-        Usuario nuevoUsuario = usuarioService.createUsuario(usuario);
-        return ResponseEntity.status(HttpStatus.CREATED).body(nuevoUsuario);
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Usuario> updateUsuario(@PathVariable Long id, @RequestBody Usuario usuario) {
+    public ResponseEntity<UsuarioDTO> updateUsuario(@PathVariable Long id, @RequestBody Usuario usuario) {
         if (id == null || id <= 0 || usuario == null) {
             return ResponseEntity.badRequest().build();
         }
+        if (usuario.getFoto() != null && !fotoService.esReferencia(usuario.getFoto())) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (usuario.getName() != null && usuario.getName().trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        try {
+            Optional<Usuario> usuarioActualizado = usuarioService.updateUsuario(id, usuario);
+            return usuarioActualizado.map(actualizado -> ResponseEntity.ok(usuarioService.perfil(actualizado)))
+                                   .orElse(ResponseEntity.notFound().build());
+        } catch (DataIntegrityViolationException e) {
+            return rechazar(e);
+        }
+    }
+    
+    @PutMapping("/{id}/foto")
+    public ResponseEntity<UsuarioDTO> updateFotoUsuario(@PathVariable Long id,
+                                                     @RequestPart("foto") MultipartFile foto) throws IOException {
+        if (id == null || id <= 0 || foto == null || foto.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
         
-        Optional<Usuario> usuarioActualizado = usuarioService.updateUsuario(id, usuario);
-        return usuarioActualizado.map(ResponseEntity::ok)
+        Optional<String> referencia;
+        try (InputStream entrada = foto.getInputStream()) {
+            referencia = fotoService.guardar(entrada);
+        }
+        if (referencia.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        Optional<Usuario> usuarioActualizado = usuarioService.updateFoto(id, referencia.get());
+        return usuarioActualizado.map(actualizado -> ResponseEntity.ok(usuarioService.perfil(actualizado)))
                                .orElse(ResponseEntity.notFound().build());
     }
     
@@ -83,4 +193,33 @@ public class UsuarioController {
         }
         return ResponseEntity.notFound().build();
     }
+    
+    /**
+     * Responde 304 sin serializar el usuario si el cliente ya tiene esta versión.
+     * La ETag incluye la experiencia porque puede llevar sumada la pendiente de volcar.
+     */
+    private ResponseEntity<UsuarioDTO> condicional(Usuario usuario, WebRequest request) {
+        String etag = "W/\"" + usuario.getIdUsuario() + "-" + usuario.getVersion() + "-" + usuario.getExp() + "\"";
+        long modificado = usuario.getActualizado() == null ? -1 :
+            usuario.getActualizado().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (request.checkNotModified(etag, modificado)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).lastModified(modificado).body(usuarioService.perfil(usuario));
+    }
+    
+    // 409 solo si el nombre ya está en uso; cualquier otra restricción violada (p. ej. un
+    // nombre más largo que la columna) es una petición no válida
+    private static <T> ResponseEntity<T> rechazar(DataIntegrityViolationException e) {
+        return ResponseEntity.status(nombreEnUso(e) ? HttpStatus.CONFLICT : HttpStatus.BAD_REQUEST).build();
+    }
+    
+    private static boolean nombreEnUso(DataIntegrityViolationException e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException violacion) {
+                return INDICE_NOMBRE.equals(violacion.getConstraintName());
+            }
+        }
+        return false;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.api.daily.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Misiones completadas y experiencia ganada por un usuario en un día, semana o mes
+ * @param inicio Primer día del periodo
+ */
+public record ActividadPeriodo(LocalDate inicio, long completadas, long exp) {}
@@ -0,0 +1,9 @@
+package com.api.daily.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila mínima de misiones_hechas para recorrer la actividad sin cargar entidades
+ */
+public record ActividadUsuario(Long idUsuario, LocalDateTime fecha) {
+}
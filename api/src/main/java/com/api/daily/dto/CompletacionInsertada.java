@@ -0,0 +1,9 @@
+package com.api.daily.dto;
+
+/**
+ * Resultado de insertar una misión hecha: su id y la experiencia que otorga
+ */
+public interface CompletacionInsertada {
+    Long getIdKey();
+    Integer getExperiencia();
+}
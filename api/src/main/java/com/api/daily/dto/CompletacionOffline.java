@@ -0,0 +1,13 @@
+package com.api.daily.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Misión completada en el móvil sin conexión, pendiente de sincronizar
+ * @param clave Id generado por el cliente; se guarda como clave de idempotencia
+ * @param fecha Momento en que se completó en el móvil
+ * @param fotoMision Referencia a una foto ya subida, o null
+ */
+public record CompletacionOffline(String clave, Long idUsuario, Long idMision,
+                                  LocalDateTime fecha, String fotoMision) {
+}
@@ -0,0 +1,9 @@
+package com.api.daily.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Misión completada por un usuario y cuándo, para cargar su mapa de bits de completadas
+ */
+public record CompletacionUsuario(Long idMision, LocalDateTime fecha) {
+}
@@ -0,0 +1,7 @@
+package com.api.daily.dto;
+
+public interface CredencialUsuario {
+    Long getIdUsuario();
+    String getName();
+    String getPasswd();
+}
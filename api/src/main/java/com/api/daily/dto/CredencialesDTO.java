@@ -0,0 +1,4 @@
+package com.api.daily.dto;
+
+public record CredencialesDTO(String name, String passwd) {
+}
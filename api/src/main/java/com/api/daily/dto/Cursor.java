@@ -0,0 +1,41 @@
+package com.api.daily.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Codifica la posición de la última fila devuelta como un cursor opaco
+ */
+public final class Cursor {
+    
+    private static final String SEPARADOR = "|";
+    
+    private Cursor() {}
+    
+    public static String codificar(Object... claves) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < claves.length; i++) {
+            if (i > 0) {
+                sb.append(SEPARADOR);
+            }
+            sb.append(claves[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * @param cursor Cursor recibido del cliente
+     * @param numClaves Número de claves que debe contener
+     * @return Claves en el mismo orden en que se codificaron
+     * @throws IllegalArgumentException si el cursor no es válido
+     */
+    public static String[] decodificar(String cursor, int numClaves) {
+        String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] claves = texto.split("\\|", -1);
+        if (claves.length != numClaves) {
+            throw new IllegalArgumentException("Cursor no válido");
+        }
+        return claves;
+    }
+}
@@ -0,0 +1,11 @@
+package com.api.daily.dto;
+
+import java.util.List;
+
+/**
+ * Misiones completadas por un usuario y su estado después de completarlas
+ * @param misiones Ids de las misiones completadas (varias si llegan sincronizadas)
+ * @param exp Experiencia ganada con ellas
+ * @param racha Racha del usuario, null si no tiene
+ */
+public record EventoCompletacion(List<Long> misiones, int exp, UsuarioDTO usuario, RachaDTO racha) {}
@@ -0,0 +1,12 @@
+package com.api.daily.dto;
+
+import com.api.daily.model.Mision;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Misiones diarias de un día, enviadas al conectar y al cambiar de día: las del usuario
+ * en sus conexiones y las comunes en las demás
+ */
+public record EventoMisionesDiarias(LocalDate fecha, List<Mision> misiones) {}
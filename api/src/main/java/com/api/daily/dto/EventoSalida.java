@@ -0,0 +1,20 @@
+package com.api.daily.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de la bandeja de salida (tabla eventos_salida)
+ * @param idEvento Id de la fila, null si aún no se ha guardado
+ * @param tipo De momento solo completacion
+ * @param exp Experiencia ganada con la misión
+ * @param fecha Fecha de la completación
+ */
+public record EventoSalida(Long idEvento, String tipo, Long idUsuario, Long idMision, int exp,
+                           LocalDateTime fecha) {
+    
+    public static final String COMPLETACION = "completacion";
+    
+    public static EventoSalida completacion(Long idUsuario, Long idMision, int exp, LocalDateTime fecha) {
+        return new EventoSalida(null, COMPLETACION, idUsuario, idMision, exp, fecha);
+    }
+}
@@ -0,0 +1,17 @@
+package com.api.daily.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Misión completada junto con los datos de la misión, obtenida en una sola consulta
+ */
+public record MisionCompletadaDTO(
+        Long idKey,
+        Long idUsuario,
+        Long idMision,
+        LocalDateTime fecha,
+        String fotoMision,
+        String tituloMision,
+        String textoMision,
+        Integer experenciaMision) {
+}
@@ -0,0 +1,6 @@
+package com.api.daily.dto;
+
+public interface NombreUsuario {
+    Long getIdUsuario();
+    String getName();
+}
@@ -0,0 +1,26 @@
+package com.api.daily.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de resultados con cursor opaco para pedir la siguiente (null si no hay más)
+ */
+public record PaginaDTO<T>(List<T> items, String next) {
+    
+    /**
+     * Construye la página a partir de una consulta que pidió limit + 1 filas:
+     * si llegó la fila extra hay página siguiente y se descarta.
+     */
+    public static <T> PaginaDTO<T> de(List<T> filas, int limit, Function<T, String> cursorDe) {
+        if (filas.size() <= limit) {
+            return new PaginaDTO<>(filas, null);
+        }
+        List<T> items = filas.subList(0, limit);
+        return new PaginaDTO<>(items, cursorDe.apply(items.get(limit - 1)));
+    }
+    
+    public <R> PaginaDTO<R> map(Function<T, R> conversion) {
+        return new PaginaDTO<>(items.stream().map(conversion).toList(), next);
+    }
+}
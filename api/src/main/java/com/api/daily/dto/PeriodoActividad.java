@@ -0,0 +1,23 @@
+package com.api.daily.dto;
+
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Agrupación del calendario de actividad; la unidad es la de date_trunc en PostgreSQL
+ */
+public enum PeriodoActividad {
+    DIA("day", ChronoUnit.DAYS),
+    SEMANA("week", ChronoUnit.WEEKS),
+    MES("month", ChronoUnit.MONTHS);
+    
+    private final String unidad;
+    private final ChronoUnit chronoUnit;
+    
+    PeriodoActividad(String unidad, ChronoUnit chronoUnit) {
+        this.unidad = unidad;
+        this.chronoUnit = chronoUnit;
+    }
+    
+    public String getUnidad() { return unidad; }
+    public ChronoUnit getChronoUnit() { return chronoUnit; }
+}
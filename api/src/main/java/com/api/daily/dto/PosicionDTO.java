@@ -0,0 +1,4 @@
+package com.api.daily.dto;
+
+public record PosicionDTO(int posicion, Long idUsuario, String name, long puntos) {
+}
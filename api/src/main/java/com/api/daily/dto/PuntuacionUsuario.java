@@ -0,0 +1,11 @@
+package com.api.daily.dto;
+
+/**
+ * Puntuaciones de un usuario para reconstruir las clasificaciones
+ */
+public interface PuntuacionUsuario {
+    Long getIdUsuario();
+    Long getTotal();
+    Long getSemana();
+    Long getDia();
+}
@@ -0,0 +1,6 @@
+package com.api.daily.dto;
+
+import java.time.LocalDate;
+
+public record RachaDTO(Long idUsuario, int rachaActual, int rachaMaxima, LocalDate ultimoDia) {
+}
@@ -0,0 +1,20 @@
+package com.api.daily.dto;
+
+/**
+ * Resultado de sincronizar una completación offline
+ * @param idKey Id de la misión hecha, si existe (creada ahora o en una sincronización anterior)
+ */
+public record ResultadoSincronizacion(String clave, Estado estado, Long idKey) {
+    
+    public enum Estado {
+        // Insertada ahora
+        CREADA,
+        // La clave ya se había sincronizado antes
+        REPETIDA,
+        // El usuario ya tenía esa misión completada con otra clave
+        YA_COMPLETADA,
+        // Faltan datos, el usuario o la misión no existen, la fecha es futura,
+        // la foto no es una referencia o la clave es de otro usuario
+        NO_VALIDA
+    }
+}
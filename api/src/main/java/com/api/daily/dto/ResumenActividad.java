@@ -0,0 +1,11 @@
+package com.api.daily.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Totales del historial de un usuario calculados en la base de datos
+ * @param primera Fecha de la primera misión hecha, null si no hay ninguna
+ * @param ultima Fecha de la última misión hecha, null si no hay ninguna
+ */
+public record ResumenActividad(long completadas, long exp, long diasActivos,
+                               LocalDateTime primera, LocalDateTime ultima) {}
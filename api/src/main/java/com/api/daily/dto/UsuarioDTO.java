@@ -0,0 +1,9 @@
+package com.api.daily.dto;
+
+/**
+ * Perfil público de un usuario, sin contraseña, con el nivel ya calculado.
+ * Se serializa con SerializacionConfig.
+ */
+public record UsuarioDTO(Long idUsuario, String name, int exp, String foto,
+                         int nivel, int progreso, long expSiguienteNivel) {
+}
@@ -0,0 +1,7 @@
+package com.api.daily.dto;
+
+/**
+ * Identifica el estado de las misiones hechas de un usuario sin leerlas.
+ * Los id_key solo crecen, así que cualquier alta o baja cambia el par.
+ */
+public record VersionHistorial(long completadas, long ultimoIdKey) {}
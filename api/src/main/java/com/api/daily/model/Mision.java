@@ -7,7 +7,8 @@ import jakarta.persistence.*;
 public class Mision {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "misiones_id_mision_seq")
+    @SequenceGenerator(name = "misiones_id_mision_seq", sequenceName = "misiones_id_mision_seq", allocationSize = 50)
     @Column(name = "id_mision")
     private Long idMision;
     
@@ -20,6 +21,11 @@ public class Mision {
     @Column(name = "titulo_mision")
     private String tituloMision;
     
+    // Peso en el sorteo de las misiones diarias; con 0 nunca sale. Sin valor al
+    // crear se usa 1 y al actualizar se conserva el que tenía
+    @Column(name = "peso", nullable = false)
+    private Integer peso;
+    
     // Constructores
     public Mision() {}
     
@@ -46,4 +52,14 @@ public class Mision {
     
     public String getTituloMision() { return tituloMision; }
     public void setTituloMision(String tituloMision) { this.tituloMision = tituloMision; }
+    
+    public Integer getPeso() { return peso; }
+    public void setPeso(Integer peso) { this.peso = peso; }
+    
+    @PrePersist
+    void pesoPorDefecto() {
+        if (peso == null) {
+            peso = 1;
+        }
+    }
 }
\ No newline at end of file
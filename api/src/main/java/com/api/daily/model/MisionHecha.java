@@ -4,11 +4,15 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "misiones_hechas")
+@Table(name = "misiones_hechas", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_misiones_hechas_usuario_mision", columnNames = {"id_usuario", "id_mision"}),
+    @UniqueConstraint(name = "uk_misiones_hechas_clave", columnNames = {"clave_idempotencia"})
+})
 public class MisionHecha {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "misiones_hechas_id_key_seq")
+    @SequenceGenerator(name = "misiones_hechas_id_key_seq", sequenceName = "misiones_hechas_id_key_seq", allocationSize = 50)
     @Column(name = "id_key")
     private Long idKey;
     
@@ -17,6 +21,9 @@ public class MisionHecha {
     private Long idUsuario;
     private Long idMision;
     
+    @Column(name = "clave_idempotencia", length = 100)
+    private String claveIdempotencia;
+    
     // Constructores
     public MisionHecha() {}
     
@@ -46,4 +53,7 @@ public class MisionHecha {
     
     public Long getIdMision() { return idMision; }
     public void setIdMision(Long idMision) { this.idMision = idMision; }
+    
+    public String getClaveIdempotencia() { return claveIdempotencia; }
+    public void setClaveIdempotencia(String claveIdempotencia) { this.claveIdempotencia = claveIdempotencia; }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.api.daily.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "rachas")
+public class Racha {
+    
+    @Id
+    @Column(name = "id_usuario")
+    private Long idUsuario;
+    
+    @Column(name = "racha_actual")
+    private Integer rachaActual = 0;
+    
+    @Column(name = "racha_maxima")
+    private Integer rachaMaxima = 0;
+    
+    @Column(name = "ultimo_dia")
+    private LocalDate ultimoDia;
+    
+    // Constructores
+    public Racha() {}
+    
+    public Racha(Long idUsuario) {
+        this.idUsuario = idUsuario;
+    }
+    
+    // Getters y Setters
+    public Long getIdUsuario() { return idUsuario; }
+    public void setIdUsuario(Long idUsuario) { this.idUsuario = idUsuario; }
+    
+    public Integer getRachaActual() { return rachaActual != null ? rachaActual : 0; }
+    public void setRachaActual(Integer rachaActual) { this.rachaActual = rachaActual != null ? rachaActual : 0; }
+    
+    public Integer getRachaMaxima() { return rachaMaxima != null ? rachaMaxima : 0; }
+    public void setRachaMaxima(Integer rachaMaxima) { this.rachaMaxima = rachaMaxima != null ? rachaMaxima : 0; }
+    
+    public LocalDate getUltimoDia() { return ultimoDia; }
+    public void setUltimoDia(LocalDate ultimoDia) { this.ultimoDia = ultimoDia; }
+    
+    /**
+     * Registra actividad en un día. Los días deben llegar en orden cronológico.
+     * @param dia Día en el que el usuario completó alguna misión
+     * @return false si el día es anterior al último registrado y hay que recalcular
+     */
+    public boolean registrarDia(LocalDate dia) {
+        if (ultimoDia != null && dia.isBefore(ultimoDia)) {
+            return false;
+        }
+        if (ultimoDia == null || dia.isAfter(ultimoDia.plusDays(1))) {
+            rachaActual = 1;
+        } else if (dia.equals(ultimoDia.plusDays(1))) {
+            rachaActual = getRachaActual() + 1;
+        }
+        ultimoDia = dia;
+        rachaMaxima = Math.max(getRachaMaxima(), getRachaActual());
+        return true;
+    }
+    
+    /**
+     * Racha vigente en la fecha indicada: solo cuenta si hubo actividad ese mismo día
+     */
+    public int getRachaActual(LocalDate hoy) {
+        return hoy.equals(ultimoDia) ? getRachaActual() : 0;
+    }
+    
+    public void reiniciar() {
+        rachaActual = 0;
+        rachaMaxima = 0;
+        ultimoDia = null;
+    }
+}
@@ -1,5 +1,6 @@
 package com.api.daily.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
@@ -8,7 +9,8 @@ import java.time.LocalDateTime;
 public class Usuario {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usuario_id_usuario_seq")
+    @SequenceGenerator(name = "usuario_id_usuario_seq", sequenceName = "usuario_id_usuario_seq", allocationSize = 50)
     @Column(name = "id_usuario")
     private Long idUsuario;
     
@@ -20,6 +22,19 @@ public class Usuario {
     @Column(name = "fecha_registro")
     private LocalDateTime fechaRegistro = LocalDateTime.now();
     
+    // Se incrementa con cada cambio de la fila, también desde las sentencias nativas
+    @JsonIgnore
+    @Column(columnDefinition = "bigint not null default 0")
+    private long version;
+    
+    @JsonIgnore
+    private LocalDateTime actualizado;
+    
+    // Si se ha asignado la experiencia con setExp, p. ej. porque venía en el cuerpo de la petición
+    @Transient
+    @JsonIgnore
+    private boolean expAsignada;
+    
     // Constructores
     public Usuario() {}
     
@@ -39,7 +54,12 @@ public class Usuario {
     public void setName(String name) { this.name = name; }
     
     public Integer getExp() { return exp != null ? exp : 0; }
-    public void setExp(Integer exp) { this.exp = exp != null ? exp : 0; }
+    public void setExp(Integer exp) {
+        this.exp = exp != null ? exp : 0;
+        this.expAsignada = exp != null;
+    }
+    
+    public boolean isExpAsignada() { return expAsignada; }
     
     public String getFoto() { return foto; }
     public void setFoto(String foto) { this.foto = foto; }
@@ -47,6 +67,18 @@ public class Usuario {
     public LocalDateTime getFechaRegistro() { return fechaRegistro; }
     public void setFechaRegistro(LocalDateTime fechaRegistro) { this.fechaRegistro = fechaRegistro; }
     
+    public long getVersion() { return version; }
+    
+    public LocalDateTime getActualizado() { return actualizado; }
+    public void setActualizado(LocalDateTime actualizado) { this.actualizado = actualizado; }
+    
+    @PrePersist
+    @PreUpdate
+    void marcarCambio() {
+        version++;
+        actualizado = LocalDateTime.now();
+    }
+    
     // Método para añadir experiencia
     public void addExp(Integer exp) {
         if (exp != null && exp > 0) {
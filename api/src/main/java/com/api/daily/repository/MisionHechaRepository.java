@@ -1,13 +1,136 @@
 package com.api.daily.repository;
 
+import com.api.daily.dto.ActividadUsuario;
+import com.api.daily.dto.CompletacionInsertada;
+import com.api.daily.dto.CompletacionUsuario;
+import com.api.daily.dto.MisionCompletadaDTO;
+import com.api.daily.dto.ResumenActividad;
+import com.api.daily.dto.VersionHistorial;
 import com.api.daily.model.MisionHecha;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface MisionHechaRepository extends JpaRepository<MisionHecha, Long> {
     List<MisionHecha> findByIdUsuario(Long idUsuario);
     List<MisionHecha> findByIdMision(Long idMision);
     boolean existsByIdUsuarioAndIdMision(Long idUsuario, Long idMision);
-}
\ No newline at end of file
+    Optional<MisionHecha> findByIdUsuarioAndClaveIdempotencia(Long idUsuario, String claveIdempotencia);
+    List<MisionHecha> findByClaveIdempotenciaIn(Collection<String> claves);
+    boolean existsByIdUsuarioAndFechaBetween(Long idUsuario, LocalDateTime desde, LocalDateTime hasta);
+    List<MisionHecha> findByIdUsuarioInAndIdMisionIn(Collection<Long> idsUsuario, Collection<Long> idsMision);
+    
+    /**
+     * Inserta la misión hecha, su evento en la bandeja de salida (eventos_salida) y suma la
+     * experiencia al usuario en una sola sentencia.
+     * No inserta nada si el usuario o la misión no existen, o si ya estaba completada
+     * (o la clave de idempotencia ya se usó).
+     * @return Fila insertada y experiencia sumada, vacío si no se insertó
+     */
+    @Query(value = "WITH nueva AS (" +
+                   "  INSERT INTO misiones_hechas (id_key, id_usuario, id_mision, fecha, foto_mision, clave_idempotencia)" +
+                   "  SELECT nextval('misiones_hechas_id_key_seq'), u.id_usuario, m.id_mision, :fecha, :fotoMision, :clave" +
+                   "  FROM usuario u, misiones m" +
+                   "  WHERE u.id_usuario = :idUsuario AND m.id_mision = :idMision" +
+                   "  ON CONFLICT DO NOTHING" +
+                   "  RETURNING id_key, id_mision), " +
+                   "salida AS (" +
+                   "  INSERT INTO eventos_salida (tipo, id_usuario, id_mision, exp, fecha)" +
+                   "  SELECT 'completacion', :idUsuario, m.id_mision, COALESCE(m.experencia_mision, 0), :fecha" +
+                   "  FROM nueva n JOIN misiones m ON m.id_mision = n.id_mision) " +
+                   "UPDATE usuario u SET exp = COALESCE(u.exp, 0) + COALESCE(m.experencia_mision, 0), " +
+                   "version = u.version + 1, actualizado = LOCALTIMESTAMP " +
+                   "FROM nueva n JOIN misiones m ON m.id_mision = n.id_mision " +
+                   "WHERE u.id_usuario = :idUsuario " +
+                   "RETURNING n.id_key AS idKey, COALESCE(m.experencia_mision, 0) AS experiencia",
+           nativeQuery = true)
+    Optional<CompletacionInsertada> insertarCompletacion(@Param("idUsuario") Long idUsuario,
+                                        @Param("idMision") Long idMision,
+                                        @Param("fecha") LocalDateTime fecha,
+                                        @Param("fotoMision") String fotoMision,
+                                        @Param("clave") String clave);
+    
+    /**
+     * Igual que insertarCompletacion pero sin tocar la fila del usuario; la experiencia
+     * devuelta se suma aparte (modo write-behind).
+     */
+    @Query(value = "WITH nueva AS (" +
+                   "  INSERT INTO misiones_hechas (id_key, id_usuario, id_mision, fecha, foto_mision, clave_idempotencia)" +
+                   "  SELECT nextval('misiones_hechas_id_key_seq'), u.id_usuario, m.id_mision, :fecha, :fotoMision, :clave" +
+                   "  FROM usuario u, misiones m" +
+                   "  WHERE u.id_usuario = :idUsuario AND m.id_mision = :idMision" +
+                   "  ON CONFLICT DO NOTHING" +
+                   "  RETURNING id_key, id_mision), " +
+                   "salida AS (" +
+                   "  INSERT INTO eventos_salida (tipo, id_usuario, id_mision, exp, fecha)" +
+                   "  SELECT 'completacion', :idUsuario, m.id_mision, COALESCE(m.experencia_mision, 0), :fecha" +
+                   "  FROM nueva n JOIN misiones m ON m.id_mision = n.id_mision) " +
+                   "SELECT n.id_key AS idKey, COALESCE(m.experencia_mision, 0) AS experiencia " +
+                   "FROM nueva n JOIN misiones m ON m.id_mision = n.id_mision",
+           nativeQuery = true)
+    Optional<CompletacionInsertada> insertarCompletacionSinExp(@Param("idUsuario") Long idUsuario,
+                                                               @Param("idMision") Long idMision,
+                                                               @Param("fecha") LocalDateTime fecha,
+                                                               @Param("fotoMision") String fotoMision,
+                                                               @Param("clave") String clave);
+    
+    @Query("SELECT m.fecha FROM MisionHecha m WHERE m.idUsuario = :idUsuario ORDER BY m.fecha")
+    List<LocalDateTime> findFechasByIdUsuario(@Param("idUsuario") Long idUsuario);
+    
+    // Solo columnas de idx_misiones_hechas_usuario_fecha: recorrido solo del índice
+    @Query("SELECT new com.api.daily.dto.CompletacionUsuario(m.idMision, m.fecha) " +
+           "FROM MisionHecha m WHERE m.idUsuario = :idUsuario")
+    List<CompletacionUsuario> findCompletacionesByIdUsuario(@Param("idUsuario") Long idUsuario);
+    
+    @Query("SELECT new com.api.daily.dto.MisionCompletadaDTO(m.idKey, m.idUsuario, m.idMision, m.fecha, " +
+           "m.fotoMision, mi.tituloMision, mi.textoMision, mi.experenciaMision) " +
+           "FROM MisionHecha m JOIN Mision mi ON mi.idMision = m.idMision " +
+           "WHERE m.idUsuario = :idUsuario ORDER BY m.fecha DESC")
+    List<MisionCompletadaDTO> findHistorialByIdUsuario(@Param("idUsuario") Long idUsuario);
+    
+    @Query("SELECT new com.api.daily.dto.VersionHistorial(COUNT(m), COALESCE(MAX(m.idKey), 0)) " +
+           "FROM MisionHecha m WHERE m.idUsuario = :idUsuario")
+    VersionHistorial findVersionHistorial(@Param("idUsuario") Long idUsuario);
+    
+    @Query("SELECT new com.api.daily.dto.ResumenActividad(COUNT(m), COALESCE(SUM(mi.experenciaMision), 0), " +
+           "COUNT(DISTINCT cast(m.fecha as LocalDate)), MIN(m.fecha), MAX(m.fecha)) " +
+           "FROM MisionHecha m JOIN Mision mi ON mi.idMision = m.idMision WHERE m.idUsuario = :idUsuario")
+    ResumenActividad findResumenByIdUsuario(@Param("idUsuario") Long idUsuario);
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.api.daily.dto.ActividadUsuario(m.idUsuario, m.fecha) " +
+           "FROM MisionHecha m ORDER BY m.idUsuario, m.fecha")
+    Stream<ActividadUsuario> streamActividad();
+    
+    // Paginación por cursor
+    List<MisionHecha> findByIdKeyGreaterThanOrderByIdKeyAsc(Long idKey, Limit limit);
+    
+    List<MisionHecha> findByIdMisionOrderByFechaAscIdKeyAsc(Long idMision, Limit limit);
+    
+    @Query("SELECT m FROM MisionHecha m WHERE m.idMision = :idMision " +
+           "AND (m.fecha > :fecha OR (m.fecha = :fecha AND m.idKey > :idKey)) " +
+           "ORDER BY m.fecha, m.idKey")
+    List<MisionHecha> findByIdMisionDespuesDe(@Param("idMision") Long idMision,
+                                              @Param("fecha") LocalDateTime fecha,
+                                              @Param("idKey") Long idKey,
+                                              Limit limit);
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT m FROM MisionHecha m ORDER BY m.idKey")
+    Stream<MisionHecha> streamAll();
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT m FROM MisionHecha m WHERE m.idMision = :idMision ORDER BY m.fecha, m.idKey")
+    Stream<MisionHecha> streamByIdMision(@Param("idMision") Long idMision);
+}
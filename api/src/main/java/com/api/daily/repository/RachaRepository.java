@@ -0,0 +1,34 @@
+package com.api.daily.repository;
+
+import com.api.daily.model.Racha;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RachaRepository extends JpaRepository<Racha, Long> {
+    /**
+     * Crea vacías las rachas que falten de usuarios que existen; no choca con otra
+     * transacción que las cree a la vez
+     */
+    @Modifying
+    @Query(value = "INSERT INTO rachas (id_usuario, racha_actual, racha_maxima) " +
+                   "SELECT id_usuario, 0, 0 FROM usuario WHERE id_usuario IN (:ids) " +
+                   "ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int crearSiNoExisten(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Rachas bloqueadas (FOR UPDATE) hasta el final de la transacción. Se bloquean en
+     * orden de usuario para que dos transacciones no se esperen mutuamente.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Racha r WHERE r.idUsuario IN :ids ORDER BY r.idUsuario")
+    List<Racha> findParaActualizar(@Param("ids") Collection<Long> ids);
+}
\ No newline at end of file
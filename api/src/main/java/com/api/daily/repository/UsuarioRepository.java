@@ -1,12 +1,96 @@
 package com.api.daily.repository;
 
+import com.api.daily.dto.CredencialUsuario;
+import com.api.daily.dto.NombreUsuario;
+import com.api.daily.dto.PuntuacionUsuario;
 import com.api.daily.model.Usuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
-    Optional<Usuario> findByName(String name);
-    boolean existsByName(String name);
-}
\ No newline at end of file
+    /**
+     * Id del usuario con ese nombre, sin distinguir mayúsculas (índice uk_usuario_nombre)
+     */
+    @Query("SELECT u.idUsuario FROM Usuario u WHERE lower(u.name) = lower(:name)")
+    Optional<Long> findIdByName(@Param("name") String name);
+    
+    @Query("SELECT u.idUsuario AS idUsuario, u.name AS name, u.passwd AS passwd FROM Usuario u " +
+           "WHERE u.idUsuario = :idUsuario")
+    Optional<CredencialUsuario> findCredencialById(@Param("idUsuario") Long idUsuario);
+    
+    // Contraseñas guardadas antes de cifrarlas
+    @Query("SELECT u.idUsuario AS idUsuario, u.name AS name, u.passwd AS passwd FROM Usuario u " +
+           "WHERE u.idUsuario > :desde AND u.passwd NOT LIKE '{bcrypt}%' ORDER BY u.idUsuario")
+    List<CredencialUsuario> findTextoPlano(@Param("desde") Long desde, Limit limit);
+    
+    /**
+     * Cambia la contraseña solo si sigue siendo la leída, para no pisar un cambio concurrente
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Usuario u SET u.passwd = :nueva WHERE u.idUsuario = :idUsuario AND u.passwd = :anterior")
+    int cambiarPasswd(@Param("idUsuario") Long idUsuario, @Param("anterior") String anterior,
+                      @Param("nueva") String nueva);
+    
+    List<NombreUsuario> findByIdUsuarioIn(Collection<Long> ids);
+    
+    /**
+     * Experiencia total de cada usuario y la ganada desde el inicio de la semana y del día
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = "SELECT u.id_usuario AS idUsuario, COALESCE(u.exp, 0) AS total, " +
+                   "COALESCE(SUM(m.experencia_mision), 0) AS semana, " +
+                   "COALESCE(SUM(m.experencia_mision) FILTER (WHERE mh.fecha >= :inicioDia), 0) AS dia " +
+                   "FROM usuario u " +
+                   "LEFT JOIN misiones_hechas mh ON mh.id_usuario = u.id_usuario AND mh.fecha >= :inicioSemana " +
+                   "LEFT JOIN misiones m ON m.id_mision = mh.id_mision " +
+                   "GROUP BY u.id_usuario, u.exp",
+           nativeQuery = true)
+    Stream<PuntuacionUsuario> streamPuntuaciones(@Param("inicioSemana") LocalDateTime inicioSemana,
+                                                 @Param("inicioDia") LocalDateTime inicioDia);
+    
+    /**
+     * Cambia solo los campos no nulos, sin leer la fila: la experiencia no se pisa si no se indica
+     */
+    @Modifying
+    @Query(value = "UPDATE usuario SET name = COALESCE(CAST(:name AS varchar), name), " +
+                   "passwd = COALESCE(CAST(:passwd AS varchar), passwd), exp = COALESCE(CAST(:exp AS integer), exp), " +
+                   "foto = COALESCE(CAST(:foto AS varchar), foto), version = version + 1, " +
+                   "actualizado = LOCALTIMESTAMP WHERE id_usuario = :idUsuario",
+           nativeQuery = true)
+    int actualizar(@Param("idUsuario") Long idUsuario, @Param("name") String name, @Param("passwd") String passwd,
+                   @Param("exp") Integer exp, @Param("foto") String foto);
+    
+    @Modifying
+    @Query(value = "UPDATE usuario SET foto = :foto, version = version + 1, actualizado = LOCALTIMESTAMP " +
+                   "WHERE id_usuario = :idUsuario",
+           nativeQuery = true)
+    int cambiarFoto(@Param("idUsuario") Long idUsuario, @Param("foto") String foto);
+    
+    @Modifying
+    @Query(value = "UPDATE usuario SET exp = COALESCE(exp, 0) + :exp, version = version + 1, " +
+                   "actualizado = LOCALTIMESTAMP WHERE id_usuario = :idUsuario",
+           nativeQuery = true)
+    int sumarExp(@Param("idUsuario") Long idUsuario, @Param("exp") Integer exp);
+    
+    // Paginación por cursor
+    List<Usuario> findByIdUsuarioGreaterThanOrderByIdUsuarioAsc(Long idUsuario, Limit limit);
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT u FROM Usuario u ORDER BY u.idUsuario")
+    Stream<Usuario> streamAll();
+}
@@ -0,0 +1,26 @@
+package com.api.daily.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Aciertos y fallos de una caché propia, publicados como cache.gets igual que las de Caffeine
+ */
+final class AciertosCache {
+    
+    private final Counter aciertos;
+    private final Counter fallos;
+    
+    AciertosCache(MeterRegistry meterRegistry, String cache) {
+        this.aciertos = meterRegistry.counter("cache.gets", "cache", cache, "result", "hit");
+        this.fallos = meterRegistry.counter("cache.gets", "cache", cache, "result", "miss");
+    }
+    
+    void acierto() {
+        aciertos.increment();
+    }
+    
+    void fallo() {
+        fallos.increment();
+    }
+}
@@ -0,0 +1,312 @@
+package com.api.daily.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Cola en memoria acotada con un productor y varios consumidores, sobre un anillo de
+ * ranuras que se reutilizan. Cada consumidor lleva su propia secuencia y procesa por lotes
+ * todo lo publicado desde su última lectura; si depende de otros consumidores no pasa de lo
+ * que ellos ya han procesado, ni recibe los eventos que ellos han descartado. El productor
+ * espera mientras la ranura que va a reutilizar no la hayan procesado todos (contrapresión).
+ */
+final class AnilloEventos<T> {
+    
+    private static final Logger log = LoggerFactory.getLogger(AnilloEventos.class);
+    private static final int INTENTOS = 3;
+    private static final long ESPERA_REINTENTO_MS = 1000;
+    
+    private final Object[] ranuras;
+    // Por ranura, un bit por cada consumidor que ha descartado (o saltado) su evento
+    private final AtomicLongArray descartes;
+    private final int mascara;
+    private final int loteMaximo;
+    private final List<Consumidor<T>> consumidores = new ArrayList<>();
+    private final Consumer<List<T>> descartados;
+    
+    // Cualquier avance del productor o de un consumidor se señala aquí
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition avance = cerrojo.newCondition();
+    
+    // Última secuencia publicada
+    private volatile long cursor = -1;
+    private volatile boolean activo = true;
+    private final AtomicLong esperas = new AtomicLong();
+    
+    /**
+     * @param descartados Recibe los lotes que un consumidor no ha podido procesar tras INTENTOS fallos
+     */
+    AnilloEventos(int capacidad, int loteMaximo, Consumer<List<T>> descartados) {
+        if (capacidad <= 0 || Integer.bitCount(capacidad) != 1) {
+            throw new IllegalArgumentException("La capacidad del anillo debe ser una potencia de 2: " + capacidad);
+        }
+        this.ranuras = new Object[capacidad];
+        this.descartes = new AtomicLongArray(capacidad);
+        this.mascara = capacidad - 1;
+        this.loteMaximo = loteMaximo;
+        this.descartados = descartados;
+    }
+    
+    /**
+     * Añade un consumidor; solo antes de iniciar el anillo
+     * @param manejador Procesa un lote en orden; si lanza una excepción el lote se reintenta
+     *                  y tras INTENTOS fallos se pasa a descartados
+     * @param anteriores Consumidores que tienen que haber procesado cada evento antes que este
+     */
+    Consumidor<T> consumidor(String nombre, Consumer<List<T>> manejador, List<Consumidor<T>> anteriores) {
+        if (consumidores.size() == Long.SIZE) {
+            throw new IllegalStateException("Como mucho " + Long.SIZE + " consumidores");
+        }
+        Consumidor<T> consumidor = new Consumidor<>(nombre, manejador, anteriores, consumidores.size());
+        consumidores.add(consumidor);
+        return consumidor;
+    }
+    
+    /**
+     * Arranca un hilo por consumidor
+     */
+    void iniciar() {
+        for (Consumidor<T> consumidor : consumidores) {
+            Thread hilo = new Thread(() -> consumir(consumidor), "anillo-" + consumidor.nombre);
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+    }
+    
+    /**
+     * Los consumidores terminan el lote en curso y paran; lo no procesado se pierde
+     */
+    void detener() {
+        activo = false;
+        senalar();
+    }
+    
+    /**
+     * Publica los eventos en orden. Solo debe llamarlo un hilo.
+     * @return Secuencia del último evento publicado
+     * @throws InterruptedException Si se interrumpe o se detiene el anillo esperando sitio
+     */
+    long publicar(List<T> eventos) throws InterruptedException {
+        long siguiente = cursor;
+        for (T evento : eventos) {
+            siguiente++;
+            if (siguiente - ranuras.length > getProcesado()) {
+                // Sin sitio: se publica lo ya escrito para que los consumidores avancen
+                esperarSitio(siguiente);
+            }
+            descartes.set(indice(siguiente), 0);
+            ranuras[indice(siguiente)] = evento;
+        }
+        publicarHasta(siguiente);
+        return siguiente;
+    }
+    
+    long getCursor() {
+        return cursor;
+    }
+    
+    /**
+     * Secuencia hasta la que todos los consumidores han procesado
+     */
+    long getProcesado() {
+        long minimo = cursor;
+        for (Consumidor<T> consumidor : consumidores) {
+            minimo = Math.min(minimo, consumidor.secuencia);
+        }
+        return minimo;
+    }
+    
+    int getCapacidad() {
+        return ranuras.length;
+    }
+    
+    /**
+     * Veces que el productor ha tenido que esperar por estar el anillo lleno
+     */
+    long getEsperas() {
+        return esperas.get();
+    }
+    
+    private void esperarSitio(long siguiente) throws InterruptedException {
+        esperas.incrementAndGet();
+        cerrojo.lock();
+        try {
+            cursor = siguiente - 1;
+            avance.signalAll();
+            while (activo && siguiente - ranuras.length > getProcesado()) {
+                avance.await();
+            }
+            if (!activo) {
+                throw new InterruptedException("Anillo detenido");
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+    
+    private void publicarHasta(long secuencia) {
+        cerrojo.lock();
+        try {
+            cursor = secuencia;
+            avance.signalAll();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void consumir(Consumidor<T> consumidor) {
+        List<T> lote = new ArrayList<>(loteMaximo);
+        try {
+            while (activo) {
+                long siguiente = consumidor.secuencia + 1;
+                long disponible = esperarEventos(consumidor, siguiente);
+                if (disponible < siguiente) {
+                    return;
+                }
+                long hasta = Math.min(disponible, siguiente + loteMaximo - 1);
+                lote.clear();
+                for (long secuencia = siguiente; secuencia <= hasta; secuencia++) {
+                    // Lo que ha descartado un consumidor anterior tampoco lo procesa este
+                    if ((descartes.get(indice(secuencia)) & consumidor.anterioresBits) != 0) {
+                        descartar(consumidor, secuencia);
+                    } else {
+                        lote.add((T) ranuras[indice(secuencia)]);
+                    }
+                }
+                if (!lote.isEmpty() && !procesar(consumidor, lote)) {
+                    for (long secuencia = siguiente; secuencia <= hasta; secuencia++) {
+                        descartar(consumidor, secuencia);
+                    }
+                }
+                cerrojo.lock();
+                try {
+                    consumidor.secuencia = hasta;
+                    avance.signalAll();
+                } finally {
+                    cerrojo.unlock();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Última secuencia que el consumidor puede leer; menor que siguiente si se detiene el anillo
+    private long esperarEventos(Consumidor<T> consumidor, long siguiente) throws InterruptedException {
+        long disponible = consumidor.disponible(cursor);
+        if (disponible >= siguiente) {
+            return disponible;
+        }
+        cerrojo.lock();
+        try {
+            while (activo && (disponible = consumidor.disponible(cursor)) < siguiente) {
+                avance.await();
+            }
+            return disponible;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+    
+    // Marca el evento como descartado por el consumidor; se ve antes de que avance su secuencia
+    private void descartar(Consumidor<T> consumidor, long secuencia) {
+        descartes.getAndAccumulate(indice(secuencia), consumidor.bit, (actual, bit) -> actual | bit);
+    }
+    
+    // false si el lote se ha descartado
+    private boolean procesar(Consumidor<T> consumidor, List<T> lote) throws InterruptedException {
+        for (int intento = 1; ; intento++) {
+            try {
+                consumidor.manejador.accept(lote);
+                consumidor.procesados.addAndGet(lote.size());
+                return true;
+            } catch (RuntimeException e) {
+                consumidor.errores.incrementAndGet();
+                if (intento == INTENTOS || !activo) {
+                    log.error("Descartado un lote de {} eventos en {} tras {} intentos",
+                              lote.size(), consumidor.nombre, intento, e);
+                    descartados.accept(List.copyOf(lote));
+                    return false;
+                }
+                log.warn("Error procesando un lote de {} eventos en {}; se reintenta",
+                         lote.size(), consumidor.nombre, e);
+                TimeUnit.MILLISECONDS.sleep(ESPERA_REINTENTO_MS * intento);
+            }
+        }
+    }
+    
+    private void senalar() {
+        cerrojo.lock();
+        try {
+            avance.signalAll();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+    
+    private int indice(long secuencia) {
+        return (int) (secuencia & mascara);
+    }
+    
+    /**
+     * Consumidor registrado en el anillo, con su secuencia y sus contadores
+     */
+    static final class Consumidor<T> {
+        private final String nombre;
+        private final Consumer<List<T>> manejador;
+        private final List<Consumidor<T>> anteriores;
+        private final long bit;
+        // Bits de los consumidores de los que depende, directa o indirectamente
+        private final long anterioresBits;
+        // Última secuencia procesada
+        private volatile long secuencia = -1;
+        private final AtomicLong procesados = new AtomicLong();
+        private final AtomicLong errores = new AtomicLong();
+        
+        private Consumidor(String nombre, Consumer<List<T>> manejador, List<Consumidor<T>> anteriores, int indice) {
+            this.nombre = nombre;
+            this.manejador = manejador;
+            this.anteriores = List.copyOf(anteriores);
+            this.bit = 1L << indice;
+            long bits = 0;
+            for (Consumidor<T> anterior : anteriores) {
+                bits |= anterior.bit | anterior.anterioresBits;
+            }
+            this.anterioresBits = bits;
+        }
+        
+        private long disponible(long cursor) {
+            long disponible = cursor;
+            for (Consumidor<T> anterior : anteriores) {
+                disponible = Math.min(disponible, anterior.secuencia);
+            }
+            return disponible;
+        }
+        
+        String getNombre() {
+            return nombre;
+        }
+        
+        long getSecuencia() {
+            return secuencia;
+        }
+        
+        long getProcesados() {
+            return procesados.get();
+        }
+        
+        long getErrores() {
+            return errores.get();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.api.daily.service;
+
+import com.api.daily.dto.CredencialUsuario;
+import com.api.daily.repository.UsuarioRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Búsqueda de usuarios por nombre y comprobación de contraseñas.
+ * Los nombres no distinguen mayúsculas (índice único sobre lower(name)) y las contraseñas
+ * se guardan cifradas con BCrypt. Se cachea el id de cada nombre buscado, también la ausencia
+ * de los que no existen para que los intentos repetidos no lleguen a la base de datos. La
+ * contraseña no se cachea: se lee por id en cada comprobación, así un cambio hecho en otro
+ * nodo se aplica en el acto. Con ella se lee el nombre actual: si otro nodo ha renombrado o
+ * borrado al usuario, el id cacheado se descarta y se vuelve a buscar el nombre.
+ */
+@Service
+public class AutenticacionService {
+    
+    private static final Logger log = LoggerFactory.getLogger(AutenticacionService.class);
+    private static final int TAMANO_LOTE = 100;
+    private static final String PREFIJO_BCRYPT = "{bcrypt}";
+    
+    // Resultado de la búsqueda de un nombre; sin id si no existe
+    private record Busqueda(Long idUsuario) {
+        static final Busqueda NINGUNA = new Busqueda(null);
+    }
+    
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    
+    @Value("${usuarios.contrasenas.cifrar-pendientes:true}")
+    private boolean cifrarPendientes;
+    
+    // Cifra con BCrypt y guarda el algoritmo como prefijo (PREFIJO_BCRYPT)
+    private final PasswordEncoder passwordEncoder = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+    
+    private final Cache<String, Busqueda> porNombre;
+    
+    public AutenticacionService(@Value("${usuarios.nombres.cache.maximo:10000}") long maximo,
+                                @Value("${usuarios.nombres.cache.segundos:300}") long segundos,
+                                @Value("${usuarios.nombres.cache.negativa-segundos:30}") long segundosNegativa,
+                                MeterRegistry meterRegistry) {
+        long duracion = Duration.ofSeconds(segundos).toNanos();
+        long duracionNegativa = Duration.ofSeconds(segundosNegativa).toNanos();
+        this.porNombre = Caffeine.newBuilder()
+            .maximumSize(maximo)
+            .expireAfter(new Expiry<String, Busqueda>() {
+                @Override
+                public long expireAfterCreate(String nombre, Busqueda busqueda, long ahora) {
+                    return busqueda.idUsuario() == null ? duracionNegativa : duracion;
+                }
+                
+                @Override
+                public long expireAfterUpdate(String nombre, Busqueda busqueda, long ahora, long restante) {
+                    return expireAfterCreate(nombre, busqueda, ahora);
+                }
+                
+                @Override
+                public long expireAfterRead(String nombre, Busqueda busqueda, long ahora, long restante) {
+                    return restante;
+                }
+            })
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, porNombre, "usuarios.nombre");
+    }
+    
+    public Optional<Long> getIdUsuario(String name) {
+        return Optional.ofNullable(porNombre.get(clave(name), nombre -> usuarioRepository.findIdByName(nombre)
+            .map(Busqueda::new)
+            .orElse(Busqueda.NINGUNA)).idUsuario());
+    }
+    
+    /**
+     * Id del usuario si el nombre y la contraseña son correctos. La contraseña se lee
+     * de la base de datos; una aún en texto plano se cifra al comprobarla.
+     */
+    public Optional<Long> autenticar(String name, String passwd) {
+        Optional<CredencialUsuario> credencial = getIdUsuario(name).flatMap(usuarioRepository::findCredencialById);
+        if (credencial.isEmpty() || !mismoNombre(credencial.get().getName(), name)) {
+            // Id cacheado antes de renombrar o borrar el usuario en otro nodo
+            invalidar(name);
+            credencial = getIdUsuario(name).flatMap(usuarioRepository::findCredencialById);
+            if (credencial.isEmpty()) {
+                return Optional.empty();
+            }
+        }
+        Long idUsuario = credencial.get().getIdUsuario();
+        String guardada = credencial.get().getPasswd();
+        if (!esTextoPlano(guardada)) {
+            return passwordEncoder.matches(passwd, guardada) ? Optional.of(idUsuario) : Optional.empty();
+        }
+        if (!MessageDigest.isEqual(guardada.getBytes(StandardCharsets.UTF_8), passwd.getBytes(StandardCharsets.UTF_8))) {
+            return Optional.empty();
+        }
+        usuarioRepository.cambiarPasswd(idUsuario, guardada, cifrar(passwd));
+        return Optional.of(idUsuario);
+    }
+    
+    public String cifrar(String passwd) {
+        return passwordEncoder.encode(passwd);
+    }
+    
+    /**
+     * Descarta lo cacheado para un nombre tras crear, renombrar o borrar el usuario
+     */
+    public void invalidar(String name) {
+        if (name != null) {
+            porNombre.invalidate(clave(name));
+        }
+    }
+    
+    /**
+     * Cifra en segundo plano las contraseñas guardadas en texto plano antes de cifrarlas
+     * al registrarse. BCrypt es lento a propósito, así que no se retrasa el arranque.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciarCifradoPendientes() {
+        if (cifrarPendientes) {
+            Thread hilo = new Thread(this::cifrarPendientes, "cifrado-contrasenas");
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+    }
+    
+    void cifrarPendientes() {
+        long desde = 0;
+        int cifradas = 0;
+        List<CredencialUsuario> lote;
+        do {
+            lote = usuarioRepository.findTextoPlano(desde, Limit.of(TAMANO_LOTE));
+            for (CredencialUsuario credencial : lote) {
+                cifradas += usuarioRepository.cambiarPasswd(
+                    credencial.getIdUsuario(), credencial.getPasswd(), cifrar(credencial.getPasswd()));
+                desde = credencial.getIdUsuario();
+            }
+        } while (lote.size() == TAMANO_LOTE);
+        if (cifradas > 0) {
+            log.info("Cifradas {} contraseñas en texto plano", cifradas);
+        }
+    }
+    
+    /**
+     * Si dos nombres son el mismo usuario (sin distinguir mayúsculas ni espacios a los lados)
+     */
+    static boolean mismoNombre(String name, String otro) {
+        return name != null && otro != null && clave(name).equals(clave(otro));
+    }
+    
+    private static String clave(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static boolean esTextoPlano(String passwd) {
+        return !passwd.startsWith(PREFIJO_BCRYPT);
+    }
+}
@@ -0,0 +1,134 @@
+package com.api.daily.service;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Avisos que tienen que llegar a todos los nodos, con LISTEN/NOTIFY de PostgreSQL.
+ * Cada nodo escucha en una conexión propia, fuera del pool, y entrega cada aviso al
+ * receptor de su canal, también en el nodo que lo envía. Los avisos enviados mientras
+ * un nodo está reconectando se pierden: no deben ser la única forma de ponerse al día.
+ */
+@Service
+public class AvisosEntreNodos {
+    
+    private static final Logger log = LoggerFactory.getLogger(AvisosEntreNodos.class);
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+    
+    @Value("${avisos.nodos.espera-ms:1000}")
+    private int esperaMs;
+    
+    private final Map<String, Consumer<String>> receptores = new ConcurrentHashMap<>();
+    private volatile boolean activo;
+    private Thread escucha;
+    
+    /**
+     * Registra el receptor de un canal; solo antes de arrancar
+     */
+    public void escuchar(String canal, Consumer<String> receptor) {
+        receptores.put(canal, receptor);
+    }
+    
+    /**
+     * Envía los avisos en una sentencia. Dentro de una transacción PostgreSQL los entrega
+     * al confirmarla; dos avisos iguales de la misma transacción llegan como uno.
+     * @param cargas Texto de cada aviso (menos de 8000 bytes)
+     */
+    public void enviar(String canal, List<String> cargas) {
+        if (cargas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query("SELECT pg_notify(?, carga) FROM unnest(?) AS carga", fila -> {},
+                           canal, cargas.toArray(String[]::new));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        if (receptores.isEmpty()) {
+            return;
+        }
+        activo = true;
+        escucha = new Thread(this::escuchar, "avisos-nodos");
+        escucha.setDaemon(true);
+        escucha.start();
+    }
+    
+    @PreDestroy
+    void detener() throws InterruptedException {
+        activo = false;
+        if (escucha != null) {
+            escucha.interrupt();
+            escucha.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+    
+    // Escucha hasta parar; si se pierde la conexión vuelve a abrirla
+    private void escuchar() {
+        while (activo) {
+            try (Connection conexion = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement sentencia = conexion.createStatement()) {
+                    for (String canal : receptores.keySet()) {
+                        sentencia.execute("LISTEN " + canal);
+                    }
+                }
+                PGConnection pg = conexion.unwrap(PGConnection.class);
+                while (activo) {
+                    PGNotification[] avisos = pg.getNotifications(esperaMs);
+                    if (avisos != null) {
+                        for (PGNotification aviso : avisos) {
+                            entregar(aviso);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!activo) {
+                    return;
+                }
+                log.warn("Conexión de avisos entre nodos perdida; se reconecta", e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(esperaMs);
+                } catch (InterruptedException interrumpido) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    private void entregar(PGNotification aviso) {
+        Consumer<String> receptor = receptores.get(aviso.getName());
+        if (receptor == null) {
+            return;
+        }
+        try {
+            receptor.accept(aviso.getParameter());
+        } catch (RuntimeException e) {
+            log.warn("Error entregando un aviso del canal {}", aviso.getName(), e);
+        }
+    }
+}
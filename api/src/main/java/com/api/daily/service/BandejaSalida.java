@@ -0,0 +1,282 @@
+package com.api.daily.service;
+
+import com.api.daily.dto.EventoSalida;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Efectos de las completaciones que no hace falta aplicar dentro de la petición: la racha
+ * y el aviso por SSE, que se difunde a todos los nodos porque el que reclama el evento
+ * no tiene por qué ser el que tiene la conexión del usuario. Cada completación guarda un evento en eventos_salida en la misma
+ * transacción que la misión hecha. Un hilo de relevo reclama los eventos por lotes
+ * (FOR UPDATE SKIP LOCKED, así varios nodos no se reparten el mismo), los publica en un
+ * anillo en memoria y los borra cuando todos los consumidores los han procesado.
+ * <p>
+ * La entrega es al menos una vez: un lote reclamado queda reservado durante
+ * eventos.salida.reclamo-segundos y, si el nodo cae o un consumidor no consigue procesarlo,
+ * vuelve a reclamarse al vencer la reserva. Los consumidores tienen que ser idempotentes.
+ */
+@Service
+public class BandejaSalida {
+    
+    private static final Logger log = LoggerFactory.getLogger(BandejaSalida.class);
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private RachaService rachaService;
+    
+    @Autowired
+    private NotificadorEventos notificadorEventos;
+    
+    private final int tamanoLote;
+    private final int reclamoSegundos;
+    private final long intervaloMs;
+    
+    private final AnilloEventos<EventoSalida> anillo;
+    
+    // Ids publicados en el anillo pendientes de borrar; el primero es la secuencia siguienteABorrar
+    private final ArrayDeque<Long> publicados = new ArrayDeque<>();
+    private long siguienteABorrar;
+    
+    // Ids que algún consumidor ha descartado: no se borran y se repiten al vencer la reserva
+    private final Set<Long> descartados = ConcurrentHashMap.newKeySet();
+    
+    // Avisos de completaciones confirmadas en este nodo, para no esperar al intervalo
+    private final Semaphore aviso = new Semaphore(0);
+    private volatile boolean activo;
+    private Thread relevo;
+    
+    private final Timer espera;
+    
+    public BandejaSalida(@Value("${eventos.salida.lote:500}") int tamanoLote,
+                         @Value("${eventos.salida.reclamo-segundos:60}") int reclamoSegundos,
+                         @Value("${eventos.salida.intervalo-ms:1000}") long intervaloMs,
+                         @Value("${eventos.salida.anillo:4096}") int capacidad,
+                         MeterRegistry meterRegistry) {
+        this.tamanoLote = tamanoLote;
+        this.reclamoSegundos = reclamoSegundos;
+        this.intervaloMs = intervaloMs;
+        this.anillo = new AnilloEventos<>(capacidad, tamanoLote,
+            lote -> lote.forEach(evento -> descartados.add(evento.idEvento())));
+    
+        // La notificación lleva la racha, así que va después de actualizarla
+        AnilloEventos.Consumidor<EventoSalida> rachas = anillo.consumidor("rachas", this::actualizarRachas, List.of());
+        AnilloEventos.Consumidor<EventoSalida> notificaciones =
+            anillo.consumidor("notificaciones", this::notificar, List.of(rachas));
+    
+        for (AnilloEventos.Consumidor<EventoSalida> consumidor : List.of(rachas, notificaciones)) {
+            FunctionCounter.builder("eventos.salida.procesados", consumidor, AnilloEventos.Consumidor::getProcesados)
+                .tag("consumidor", consumidor.getNombre())
+                .register(meterRegistry);
+            FunctionCounter.builder("eventos.salida.errores", consumidor, AnilloEventos.Consumidor::getErrores)
+                .tag("consumidor", consumidor.getNombre())
+                .register(meterRegistry);
+            Gauge.builder("eventos.salida.anillo.retraso", consumidor, c -> anillo.getCursor() - c.getSecuencia())
+                .tag("consumidor", consumidor.getNombre())
+                .description("Eventos publicados que el consumidor aún no ha procesado")
+                .register(meterRegistry);
+        }
+        Gauge.builder("eventos.salida.anillo.ocupacion", anillo,
+                      a -> (double) (a.getCursor() - a.getProcesado()) / a.getCapacidad())
+            .description("Fracción del anillo ocupada; a 1 el relevo deja de reclamar eventos")
+            .register(meterRegistry);
+        FunctionCounter.builder("eventos.salida.anillo.esperas", anillo, AnilloEventos::getEsperas)
+            .description("Veces que el relevo ha esperado por estar lleno el anillo")
+            .register(meterRegistry);
+        this.espera = Timer.builder("eventos.salida.espera")
+            .description("Tiempo desde que se guarda un evento hasta que se reclama")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Guarda los eventos en la transacción en curso y avisa al relevo al confirmarse
+     */
+    public void guardar(List<EventoSalida> eventos) {
+        if (eventos.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO eventos_salida (tipo, id_usuario, id_mision, exp, fecha) VALUES (?, ?, ?, ?, ?)",
+            eventos.stream().map(evento -> new Object[] {
+                evento.tipo(), evento.idUsuario(), evento.idMision(), evento.exp(), evento.fecha()
+            }).toList());
+        avisar();
+    }
+    
+    /**
+     * Despierta al relevo al confirmarse la transacción en curso, para los eventos que
+     * se guardan en la propia sentencia de la completación
+     */
+    public void avisar() {
+        Transacciones.despuesDeConfirmar(aviso::release);
+    }
+    
+    /**
+     * Arranca los consumidores y el relevo. Lo primero que se reclama son los eventos
+     * que quedaron sin procesar antes de parar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        Long pendientes = jdbcTemplate.queryForObject("SELECT count(*) FROM eventos_salida", Long.class);
+        if (pendientes != null && pendientes > 0) {
+            log.info("{} eventos pendientes en la bandeja de salida", pendientes);
+        }
+        anillo.iniciar();
+        activo = true;
+        relevo = new Thread(this::relevar, "relevo-eventos");
+        relevo.setDaemon(true);
+        relevo.start();
+    }
+    
+    /**
+     * Para el relevo y libera la reserva de lo que queda por procesar, para que se
+     * reclame al volver a arrancar sin esperar a que venza
+     */
+    @PreDestroy
+    void detener() throws InterruptedException {
+        if (relevo == null) {
+            return;
+        }
+        activo = false;
+        relevo.interrupt();
+        relevo.join(TimeUnit.SECONDS.toMillis(5));
+        anillo.detener();
+        try {
+            borrarProcesados();
+            if (!publicados.isEmpty()) {
+                jdbcTemplate.update("UPDATE eventos_salida SET reclamado_hasta = NULL WHERE id_evento = ANY(?)",
+                                    (Object) publicados.toArray(Long[]::new));
+            }
+        } catch (DataAccessException e) {
+            log.warn("No se pudo liberar la reserva de {} eventos de salida", publicados.size(), e);
+        }
+    }
+    
+    private void relevar() {
+        while (activo) {
+            try {
+                borrarProcesados();
+                List<EventoSalida> lote = reclamar();
+                if (!lote.isEmpty()) {
+                    lote.forEach(evento -> publicados.add(evento.idEvento()));
+                    anillo.publicar(lote);
+                }
+                if (lote.size() < tamanoLote) {
+                    aviso.tryAcquire(intervaloMs, TimeUnit.MILLISECONDS);
+                    aviso.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (DataAccessException e) {
+                log.warn("Error en el relevo de la bandeja de salida", e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(intervaloMs);
+                } catch (InterruptedException interrumpido) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    private List<EventoSalida> reclamar() {
+        List<EventoSalida> lote = jdbcTemplate.query(
+            "UPDATE eventos_salida e SET reclamado_hasta = LOCALTIMESTAMP + ? * interval '1 second' " +
+            "FROM (SELECT id_evento FROM eventos_salida " +
+            "      WHERE reclamado_hasta IS NULL OR reclamado_hasta < LOCALTIMESTAMP " +
+            "      ORDER BY id_evento LIMIT ? FOR UPDATE SKIP LOCKED) r " +
+            "WHERE e.id_evento = r.id_evento " +
+            "RETURNING e.id_evento, e.tipo, e.id_usuario, e.id_mision, e.exp, e.fecha, " +
+            "EXTRACT(EPOCH FROM LOCALTIMESTAMP - e.creado) * 1000 AS espera_ms",
+            (rs, fila) -> {
+                espera.record(Duration.ofMillis(rs.getLong("espera_ms")));
+                return new EventoSalida(rs.getLong("id_evento"), rs.getString("tipo"), rs.getLong("id_usuario"),
+                                        rs.getLong("id_mision"), rs.getInt("exp"),
+                                        rs.getObject("fecha", LocalDateTime.class));
+            },
+            reclamoSegundos, tamanoLote);
+        lote.sort(Comparator.comparing(EventoSalida::idEvento));
+        return lote;
+    }
+    
+    // Borra los eventos que ya han procesado todos los consumidores
+    private void borrarProcesados() {
+        long procesado = anillo.getProcesado();
+        List<Long> ids = new ArrayList<>();
+        for (; siguienteABorrar <= procesado && !publicados.isEmpty(); siguienteABorrar++) {
+            Long id = publicados.poll();
+            if (!descartados.remove(id)) {
+                ids.add(id);
+            }
+        }
+        if (!ids.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM eventos_salida WHERE id_evento = ANY(?)", (Object) ids.toArray(Long[]::new));
+        }
+    }
+    
+    /**
+     * Las rachas de todos los usuarios del lote en una transacción, cada una con todas
+     * sus misiones del lote
+     */
+    private void actualizarRachas(List<EventoSalida> lote) {
+        Map<Long, Set<Long>> misionesPorUsuario = new LinkedHashMap<>();
+        for (EventoSalida evento : lote) {
+            if (EventoSalida.COMPLETACION.equals(evento.tipo())) {
+                misionesPorUsuario.computeIfAbsent(evento.idUsuario(), u -> new HashSet<>()).add(evento.idMision());
+            }
+        }
+        rachaService.registrarCompletaciones(misionesPorUsuario);
+    }
+    
+    /**
+     * Borra en la transacción en curso los eventos aún pendientes de una completación
+     * que se elimina, para que no vuelvan a sumar su día a la racha ni se avisen
+     */
+    public void descartar(Long idUsuario, Long idMision) {
+        jdbcTemplate.update("DELETE FROM eventos_salida WHERE id_usuario = ? AND id_mision = ?", idUsuario, idMision);
+    }
+    
+    /**
+     * Un aviso por usuario con todas sus misiones del lote
+     */
+    private void notificar(List<EventoSalida> lote) {
+        Map<Long, List<Long>> misionesPorUsuario = new LinkedHashMap<>();
+        Map<Long, Integer> expPorUsuario = new LinkedHashMap<>();
+        for (EventoSalida evento : lote) {
+            if (EventoSalida.COMPLETACION.equals(evento.tipo())) {
+                misionesPorUsuario.computeIfAbsent(evento.idUsuario(), u -> new ArrayList<>()).add(evento.idMision());
+                expPorUsuario.merge(evento.idUsuario(), evento.exp(), Integer::sum);
+            }
+        }
+        notificadorEventos.completaciones(misionesPorUsuario.entrySet().stream()
+            .map(e -> new NotificadorEventos.AvisoCompletacion(e.getKey(), e.getValue(), expPorUsuario.get(e.getKey())))
+            .toList());
+    }
+}
@@ -0,0 +1,92 @@
+package com.api.daily.service;
+
+import com.api.daily.dto.Cursor;
+import com.api.daily.dto.PaginaDTO;
+import com.api.daily.model.Mision;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Búsqueda de misiones por título y texto sobre un índice en memoria.
+ * El índice se construye en la primera búsqueda y se reconstruye cuando cambia el catálogo.
+ */
+@Service
+public class BusquedaMisionService {
+    
+    @Autowired
+    private CatalogoMisiones catalogoMisiones;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Se sustituye entero, nunca se modifica
+    private volatile Indexado indice;
+    
+    // La construcción lee el catálogo, que puede ir a la base de datos: lock para no fijar hilos virtuales
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    
+    private AciertosCache aciertos;
+    
+    @PostConstruct
+    void registrarMetricas() {
+        aciertos = new AciertosCache(meterRegistry, "misiones.busqueda");
+    }
+    
+    /**
+     * @param consulta Palabras a buscar; la última puede estar incompleta
+     * @param cursor Cursor de la página anterior, o null para la primera
+     * @throws IllegalArgumentException si el cursor no es válido
+     */
+    public PaginaDTO<Mision> buscar(String consulta, String cursor, int limit) {
+        int desde = cursor == null ? 0 : Integer.parseInt(Cursor.decodificar(cursor, 1)[0]);
+        if (desde < 0) {
+            throw new IllegalArgumentException("Cursor no válido");
+        }
+        List<Mision> filas = getIndice().buscar(consulta, desde, limit + 1);
+        return PaginaDTO.de(filas, limit, ultima -> Cursor.codificar(desde + limit));
+    }
+    
+    /**
+     * Descarta el índice para que se reconstruya en la próxima búsqueda.
+     * Se llama cuando cambia el catálogo de misiones.
+     */
+    public void invalidar() {
+        cerrojo.lock();
+        try {
+            indice = null;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+    
+    private IndiceBusqueda getIndice() {
+        CatalogoMisiones.Catalogo catalogo = catalogoMisiones.getCatalogo();
+        Indexado actual = indice;
+        if (actual != null && actual.hashCatalogo().equals(catalogo.hash())) {
+            aciertos.acierto();
+            return actual.indice();
+        }
+        cerrojo.lock();
+        try {
+            actual = indice;
+            if (actual == null || !actual.hashCatalogo().equals(catalogo.hash())) {
+                aciertos.fallo();
+                actual = new Indexado(catalogo.hash(), new IndiceBusqueda(catalogo.misiones()));
+                indice = actual;
+            } else {
+                aciertos.acierto();
+            }
+            return actual.indice();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+    
+    // Índice y hash del catálogo con el que se construyó
+    private record Indexado(String hashCatalogo, IndiceBusqueda indice) {}
+}
@@ -0,0 +1,138 @@
+package com.api.daily.service;
+
+import com.api.daily.model.Mision;
+import com.api.daily.repository.MisionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caché de lectura del catálogo de misiones, que solo cambia cuando se edita desde MisionService.
+ * Guarda las misiones por id (con tamaño máximo) y el catálogo completo ya serializado a JSON.
+ * Al editar se invalida en todos los nodos; además todo caduca a los misiones.cache.segundos,
+ * por si un nodo no recibió el aviso.
+ */
+@Component
+public class CatalogoMisiones {
+    
+    @Autowired
+    private MisionRepository misionRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private final Cache<Long, Mision> porId;
+    private final AciertosCache aciertosCatalogo;
+    
+    private final long vigenciaNanos;
+    
+    // Se sustituye entero, nunca se modifica
+    private volatile Catalogo catalogo;
+    // System.nanoTime() a partir del cual catalogo se vuelve a cargar
+    private volatile long caducidad;
+    
+    // Lock en vez de synchronized: la carga consulta la base de datos y así no bloquea
+    // el hilo portador cuando las peticiones corren en hilos virtuales
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    
+    public CatalogoMisiones(@Value("${misiones.cache.maximo:10000}") long maximo,
+                            @Value("${misiones.cache.segundos:60}") long segundos,
+                            MeterRegistry meterRegistry) {
+        this.vigenciaNanos = Duration.ofSeconds(segundos).toNanos();
+        this.porId = Caffeine.newBuilder()
+            .maximumSize(maximo)
+            .expireAfterWrite(Duration.ofSeconds(segundos))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, porId, "misiones.id");
+        this.aciertosCatalogo = new AciertosCache(meterRegistry, "misiones.catalogo");
+    }
+    
+    /**
+     * Todas las misiones ordenadas por id
+     */
+    public List<Mision> getMisiones() {
+        return getCatalogo().misiones();
+    }
+    
+    public Optional<Mision> getMision(Long idMision) {
+        return Optional.ofNullable(porId.get(idMision, id -> misionRepository.findById(id).orElse(null)));
+    }
+    
+    /**
+     * Descarta la misión y el catálogo completo tras crear, editar o borrar una misión
+     */
+    public void invalidar(Long idMision) {
+        cerrojo.lock();
+        try {
+            porId.invalidate(idMision);
+            catalogo = null;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+    
+    /**
+     * Versión actual del catálogo, con su JSON y su ETag calculados de una vez
+     */
+    public Catalogo getCatalogo() {
+        Catalogo actual = catalogo;
+        if (actual != null && System.nanoTime() - caducidad < 0) {
+            aciertosCatalogo.acierto();
+            return actual;
+        }
+        cerrojo.lock();
+        try {
+            if (catalogo == null || System.nanoTime() - caducidad >= 0) {
+                aciertosCatalogo.fallo();
+                caducidad = System.nanoTime() + vigenciaNanos;
+                catalogo = cargar();
+            } else {
+                aciertosCatalogo.acierto();
+            }
+            return catalogo;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+    
+    private Catalogo cargar() {
+        List<Mision> misiones = misionRepository.findAll().stream()
+            .sorted(Comparator.comparing(Mision::getIdMision))
+            .toList();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(misiones);
+            return new Catalogo(misiones, json, DigestUtils.md5DigestAsHex(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el catálogo de misiones", e);
+        }
+    }
+    
+    /**
+     * @param misiones Misiones ordenadas por id
+     * @param json Las mismas misiones serializadas, tal como las devuelve /api/misiones
+     * @param hash Resumen del JSON; cambia si y solo si cambia su contenido
+     */
+    public record Catalogo(List<Mision> misiones, byte[] json, String hash) {
+        
+        /**
+         * ETag débil: Tomcat no comprime respuestas con ETag fuerte
+         */
+        public String etag() {
+            return "W/\"" + hash + "\"";
+        }
+    }
+}
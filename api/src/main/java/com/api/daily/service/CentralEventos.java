@@ -0,0 +1,232 @@
+package com.api.daily.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Reparte eventos a las conexiones Server-Sent Events abiertas en este nodo.
+ * Una conexión en espera no ocupa ningún hilo: solo su emisor y una cola de
+ * eventos pendientes de tamaño fijo. Publicar solo encola y un pool pequeño de
+ * hilos hace las escrituras, como mucho una tarea por conexión a la vez. Si un
+ * cliente no lee y su cola se llena se cierra la conexión; al reconectar recibe
+ * el estado actual. Una escritura a un cliente que no lee se bloquea como mucho
+ * server.tomcat.connection-timeout; entonces falla y la conexión se descarta, así
+ * que los clientes atascados no retienen los hilos de envío.
+ */
+@Service
+public class CentralEventos {
+    
+    private static final Logger log = LoggerFactory.getLogger(CentralEventos.class);
+    
+    private final ObjectMapper objectMapper;
+    private final int capacidad;
+    private final long timeoutMs;
+    private final ExecutorService envios;
+    
+    private final Set<Suscripcion> suscripciones = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<Long, Set<Suscripcion>> porUsuario = new ConcurrentHashMap<>();
+    
+    private final Counter enviados;
+    private final Counter desbordados;
+    
+    // Evento de latido: un comentario SSE que mantiene viva la conexión en proxies
+    private final Set<DataWithMediaType> latido = SseEmitter.event().comment("").build();
+    
+    public CentralEventos(ObjectMapper objectMapper,
+                          @Value("${eventos.cola-por-conexion:32}") int capacidad,
+                          @Value("${eventos.timeout-ms:3600000}") long timeoutMs,
+                          @Value("${eventos.hilos:4}") int hilos,
+                          MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.capacidad = capacidad;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger numero = new AtomicInteger();
+        this.envios = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "eventos-" + numero.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.enviados = meterRegistry.counter("eventos.enviados");
+        this.desbordados = meterRegistry.counter("eventos.desbordados");
+        meterRegistry.gaugeCollectionSize("eventos.conexiones", Tags.empty(), suscripciones);
+    }
+    
+    /**
+     * Abre una conexión de eventos
+     * @param idUsuario Usuario que recibe además sus eventos propios, o null
+     * @param iniciales Eventos que se envían nada más conectar
+     */
+    public SseEmitter suscribir(Long idUsuario, Evento... iniciales) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Suscripcion suscripcion = new Suscripcion(emitter, idUsuario, capacidad);
+        emitter.onCompletion(() -> eliminar(suscripcion));
+        emitter.onTimeout(() -> eliminar(suscripcion));
+        emitter.onError(error -> eliminar(suscripcion));
+        suscripciones.add(suscripcion);
+        if (idUsuario != null) {
+            porUsuario.compute(idUsuario, (id, delUsuario) -> {
+                Set<Suscripcion> conexiones = delUsuario != null ? delUsuario : ConcurrentHashMap.<Suscripcion>newKeySet();
+                conexiones.add(suscripcion);
+                return conexiones;
+            });
+        }
+        for (Evento evento : iniciales) {
+            encolar(suscripcion, evento.datos());
+        }
+        return emitter;
+    }
+    
+    public boolean tieneSuscripciones(Long idUsuario) {
+        return porUsuario.containsKey(idUsuario);
+    }
+    
+    /**
+     * Serializa el evento una vez para enviarlo igual a todas las conexiones
+     */
+    public Evento evento(String nombre, Object datos) {
+        try {
+            return new Evento(SseEmitter.event().name(nombre).data(objectMapper.writeValueAsString(datos)).build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Evento no serializable: " + nombre, e);
+        }
+    }
+    
+    /**
+     * Publica a todas las conexiones un evento que depende del usuario: las que no son de
+     * ningún usuario reciben comunes y las de cada usuario lo que devuelva delUsuario,
+     * calculado en el pool de envíos
+     */
+    public void publicar(String nombre, Object comunes, Function<Long, ?> delUsuario) {
+        Evento evento = evento(nombre, comunes);
+        for (Suscripcion suscripcion : suscripciones) {
+            if (suscripcion.idUsuario == null) {
+                encolar(suscripcion, evento.datos());
+            }
+        }
+        for (Long idUsuario : porUsuario.keySet()) {
+            publicar(idUsuario, nombre, () -> delUsuario.apply(idUsuario));
+        }
+    }
+    
+    /**
+     * Publica un evento a las conexiones de un usuario. Los datos se calculan en el pool
+     * de envíos y solo si el usuario tiene alguna conexión abierta en este nodo.
+     */
+    public void publicar(Long idUsuario, String nombre, Supplier<?> datos) {
+        if (!tieneSuscripciones(idUsuario)) {
+            return;
+        }
+        envios.execute(() -> {
+            Set<Suscripcion> delUsuario = porUsuario.get(idUsuario);
+            if (delUsuario == null) {
+                return;
+            }
+            try {
+                Evento evento = evento(nombre, datos.get());
+                for (Suscripcion suscripcion : delUsuario) {
+                    encolar(suscripcion, evento.datos());
+                }
+            } catch (RuntimeException e) {
+                log.warn("No se pudo publicar el evento {} del usuario {}", nombre, idUsuario, e);
+            }
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${eventos.latido-ms:25000}")
+    public void latir() {
+        for (Suscripcion suscripcion : suscripciones) {
+            encolar(suscripcion, latido);
+        }
+    }
+    
+    @PreDestroy
+    void cerrar() {
+        suscripciones.forEach(suscripcion -> suscripcion.emitter.complete());
+        envios.shutdown();
+    }
+    
+    private void encolar(Suscripcion suscripcion, Set<DataWithMediaType> datos) {
+        if (!suscripcion.pendientes.offer(datos)) {
+            desbordados.increment();
+            eliminar(suscripcion);
+            suscripcion.emitter.complete();
+            return;
+        }
+        if (suscripcion.enviando.compareAndSet(false, true)) {
+            envios.execute(() -> vaciar(suscripcion));
+        }
+    }
+    
+    private void vaciar(Suscripcion suscripcion) {
+        try {
+            Set<DataWithMediaType> datos;
+            while ((datos = suscripcion.pendientes.poll()) != null) {
+                suscripcion.emitter.send(datos);
+                enviados.increment();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado, conexión ya cerrada o escritura bloqueada más del timeout
+            eliminar(suscripcion);
+            suscripcion.pendientes.clear();
+        } finally {
+            suscripcion.enviando.set(false);
+        }
+        // Lo encolado mientras se liberaba el turno
+        if (!suscripcion.pendientes.isEmpty() && suscripcion.enviando.compareAndSet(false, true)) {
+            envios.execute(() -> vaciar(suscripcion));
+        }
+    }
+    
+    private void eliminar(Suscripcion suscripcion) {
+        if (!suscripciones.remove(suscripcion) || suscripcion.idUsuario == null) {
+            return;
+        }
+        porUsuario.computeIfPresent(suscripcion.idUsuario, (id, delUsuario) -> {
+            delUsuario.remove(suscripcion);
+            return delUsuario.isEmpty() ? null : delUsuario;
+        });
+    }
+    
+    /**
+     * Evento ya serializado, listo para enviarse a cualquier conexión
+     */
+    public record Evento(Set<DataWithMediaType> datos) {}
+    
+    // Conexión abierta; se compara por identidad
+    private static final class Suscripcion {
+        final SseEmitter emitter;
+        final Long idUsuario;
+        // Eventos pendientes de enviar, como mucho eventos.cola-por-conexion
+        final ArrayBlockingQueue<Set<DataWithMediaType>> pendientes;
+        // Si hay una tarea del pool vaciando la cola
+        final AtomicBoolean enviando = new AtomicBoolean();
+        
+        Suscripcion(SseEmitter emitter, Long idUsuario, int capacidad) {
+            this.emitter = emitter;
+            this.idUsuario = idUsuario;
+            this.pendientes = new ArrayBlockingQueue<>(capacidad);
+        }
+    }
+}
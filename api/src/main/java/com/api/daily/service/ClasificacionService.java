@@ -0,0 +1,287 @@
+package com.api.daily.service;
+
+import com.api.daily.dto.NombreUsuario;
+import com.api.daily.dto.PosicionDTO;
+import com.api.daily.dto.PuntuacionUsuario;
+import com.api.daily.repository.UsuarioRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Clasificaciones de experiencia (total, semanal y diaria) mantenidas en memoria.
+ * Se reconstruyen desde la base de datos al arrancar y periódicamente, y se
+ * actualizan de forma incremental al completar misiones. Los cambios que llegan durante
+ * una reconstrucción se repiten sobre las clasificaciones nuevas antes de sustituir las
+ * actuales. Los días y las semanas se cuentan en misiones.diarias.zona-horaria.
+ */
+@Service
+public class ClasificacionService {
+    
+    public enum Periodo { TOTAL, SEMANAL, DIARIA }
+    
+    private static final Logger log = LoggerFactory.getLogger(ClasificacionService.class);
+    
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    
+    @Autowired
+    private CatalogoMisiones catalogoMisiones;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ExpAcumulador expAcumulador;
+    
+    @Value("${misiones.diarias.zona-horaria:Europe/Madrid}")
+    private ZoneId zonaHoraria;
+    
+    private volatile Clasificaciones clasificaciones;
+    
+    // Los cambios se aplican con el cerrojo de lectura; la sustitución tras reconstruir, con el de escritura
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final ReentrantLock reconstruyendo = new ReentrantLock();
+    
+    // Cambios aplicados desde que empezó la reconstrucción en curso, null si no hay ninguna
+    private volatile Queue<Consumer<Clasificaciones>> cambiosDuranteReconstruccion;
+    
+    @PostConstruct
+    void iniciar() {
+        clasificaciones = new Clasificaciones(hoy());
+    }
+    
+    /**
+     * Los N primeros de la clasificación
+     */
+    public List<PosicionDTO> getTop(Periodo periodo, int n) {
+        List<RankingIndice.Entrada> top = getIndice(periodo).getTop(n);
+        Map<Long, String> nombres = usuarioRepository.findByIdUsuarioIn(
+                top.stream().map(RankingIndice.Entrada::idUsuario).toList())
+            .stream()
+            .collect(Collectors.toMap(NombreUsuario::getIdUsuario, NombreUsuario::getName));
+        return top.stream()
+            .map(e -> new PosicionDTO(e.posicion(), e.idUsuario(), nombres.get(e.idUsuario()), e.puntos()))
+            .toList();
+    }
+    
+    /**
+     * Posición de un usuario en la clasificación, vacía si no aparece en ella
+     */
+    public Optional<PosicionDTO> getPosicion(Periodo periodo, Long idUsuario) {
+        RankingIndice.Entrada entrada = getIndice(periodo).getEntrada(idUsuario);
+        if (entrada == null) {
+            return Optional.empty();
+        }
+        String name = usuarioRepository.findByIdUsuarioIn(List.of(idUsuario)).stream()
+            .findFirst().map(NombreUsuario::getName).orElse(null);
+        return Optional.of(new PosicionDTO(entrada.posicion(), idUsuario, name, entrada.puntos()));
+    }
+    
+    /**
+     * Suma a todas las clasificaciones la experiencia de una misión completada.
+     * Si hay transacción activa se aplica al confirmarse.
+     */
+    public void registrarCompletacion(Long idUsuario, int exp, LocalDateTime fecha) {
+        LocalDate dia = diaDe(fecha);
+        aplicar(actual -> {
+            actual.total.sumar(idUsuario, exp);
+            actual.sumarPeriodicas(idUsuario, exp, dia);
+        });
+    }
+    
+    /**
+     * Resta de las clasificaciones semanal y diaria una misión completada que se ha eliminado.
+     * La experiencia total no cambia porque no se descuenta al usuario.
+     */
+    public void retirarCompletacion(Long idUsuario, Long idMision, LocalDateTime fecha) {
+        LocalDate dia = diaDe(fecha);
+        catalogoMisiones.getMision(idMision).ifPresent(mision -> aplicar(actual ->
+            actual.sumarPeriodicas(idUsuario, -mision.getExperenciaMision(), dia)));
+    }
+    
+    public void fijarExpTotal(Long idUsuario, int exp) {
+        aplicar(actual -> actual.total.fijar(idUsuario, exp));
+    }
+    
+    public void eliminarUsuario(Long idUsuario) {
+        aplicar(actual -> {
+            actual.total.eliminar(idUsuario);
+            actual.semanal.eliminar(idUsuario);
+            actual.diaria.eliminar(idUsuario);
+        });
+    }
+    
+    /**
+     * Reconstruye las tres clasificaciones con una única consulta en streaming.
+     * Corrige también los cambios hechos por otros nodos.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${clasificacion.reconstruir-ms:300000}",
+               fixedDelayString = "${clasificacion.reconstruir-ms:300000}")
+    public void reconstruir() {
+        reconstruyendo.lock();
+        try {
+            // Se empieza a registrar antes de la consulta: lo confirmado antes ya sale en ella.
+            // En modo write-behind se suma la experiencia que aún no se ha volcado
+            Queue<Consumer<Clasificaciones>> cambios = new ConcurrentLinkedQueue<>();
+            cambiosDuranteReconstruccion = cambios;
+            try {
+                LocalDate hoy = hoy();
+                Clasificaciones nuevas = expAcumulador.isHabilitado()
+                    ? expAcumulador.leerSinVolcar(pendiente -> leer(hoy, pendiente))
+                    : leer(hoy, Map.of());
+                cerrojo.writeLock().lock();
+                try {
+                    cambios.forEach(cambio -> cambio.accept(nuevas));
+                    clasificaciones = nuevas;
+                } finally {
+                    cerrojo.writeLock().unlock();
+                }
+                log.debug("Clasificaciones reconstruidas con {} usuarios ({} cambios repetidos)",
+                          nuevas.total.getTamano(), cambios.size());
+            } finally {
+                cambiosDuranteReconstruccion = null;
+            }
+        } finally {
+            reconstruyendo.unlock();
+        }
+    }
+    
+    private Clasificaciones leer(LocalDate hoy, Map<Long, Long> expPendiente) {
+        Clasificaciones nuevas = new Clasificaciones(hoy);
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        lectura.executeWithoutResult(estado -> {
+            try (Stream<PuntuacionUsuario> filas = usuarioRepository.streamPuntuaciones(
+                    inicioDe(nuevas.inicioSemana), inicioDe(hoy))) {
+                filas.forEach(fila -> {
+                    nuevas.total.fijar(fila.getIdUsuario(),
+                                       fila.getTotal() + expPendiente.getOrDefault(fila.getIdUsuario(), 0L));
+                    if (fila.getSemana() > 0) {
+                        nuevas.semanal.fijar(fila.getIdUsuario(), fila.getSemana());
+                    }
+                    if (fila.getDia() > 0) {
+                        nuevas.diaria.fijar(fila.getIdUsuario(), fila.getDia());
+                    }
+                });
+            }
+        });
+        return nuevas;
+    }
+    
+    /**
+     * Aplica el cambio al confirmarse la transacción en curso y lo registra si hay una
+     * reconstrucción en marcha
+     */
+    private void aplicar(Consumer<Clasificaciones> cambio) {
+        Transacciones.despuesDeConfirmar(() -> {
+            cerrojo.readLock().lock();
+            try {
+                cambio.accept(getClasificaciones());
+                Queue<Consumer<Clasificaciones>> cambios = cambiosDuranteReconstruccion;
+                if (cambios != null) {
+                    cambios.add(cambio);
+                }
+            } finally {
+                cerrojo.readLock().unlock();
+            }
+        });
+    }
+    
+    private LocalDate hoy() {
+        return LocalDate.now(zonaHoraria);
+    }
+    
+    // Las fechas se guardan en la zona del servidor; el día se cuenta en la de las misiones diarias
+    private LocalDate diaDe(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).withZoneSameInstant(zonaHoraria).toLocalDate();
+    }
+    
+    // Inicio del día en la zona de las misiones, como fecha en la zona del servidor
+    private LocalDateTime inicioDe(LocalDate dia) {
+        return dia.atStartOfDay(zonaHoraria).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+    
+    private RankingIndice getIndice(Periodo periodo) {
+        Clasificaciones actual = getClasificaciones();
+        return switch (periodo) {
+            case TOTAL -> actual.total;
+            case SEMANAL -> actual.semanal;
+            case DIARIA -> actual.diaria;
+        };
+    }
+    
+    // Al cambiar de día o de semana las clasificaciones periódicas empiezan vacías
+    private Clasificaciones getClasificaciones() {
+        LocalDate hoy = hoy();
+        Clasificaciones actual = clasificaciones;
+        if (actual.dia.equals(hoy)) {
+            return actual;
+        }
+        synchronized (this) {
+            actual = clasificaciones;
+            if (!actual.dia.equals(hoy)) {
+                actual = actual.siguientePeriodo(hoy);
+                clasificaciones = actual;
+            }
+            return actual;
+        }
+    }
+    
+    private static final class Clasificaciones {
+        final LocalDate dia;
+        final LocalDate inicioSemana;
+        final RankingIndice total;
+        final RankingIndice semanal;
+        final RankingIndice diaria = new RankingIndice();
+        
+        Clasificaciones(LocalDate dia) {
+            this(dia, new RankingIndice(), new RankingIndice());
+        }
+        
+        private Clasificaciones(LocalDate dia, RankingIndice total, RankingIndice semanal) {
+            this.dia = dia;
+            this.inicioSemana = dia.with(DayOfWeek.MONDAY);
+            this.total = total;
+            this.semanal = semanal;
+        }
+        
+        Clasificaciones siguientePeriodo(LocalDate hoy) {
+            boolean mismaSemana = hoy.with(DayOfWeek.MONDAY).equals(inicioSemana);
+            return new Clasificaciones(hoy, total, mismaSemana ? semanal : new RankingIndice());
+        }
+        
+        void sumarPeriodicas(Long idUsuario, int exp, LocalDate fecha) {
+            if (!fecha.isBefore(inicioSemana)) {
+                semanal.sumar(idUsuario, exp);
+            }
+            if (fecha.equals(dia)) {
+                diaria.sumar(idUsuario, exp);
+            }
+        }
+    }
+}
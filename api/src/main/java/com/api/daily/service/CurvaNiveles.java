@@ -0,0 +1,63 @@
+package com.api.daily.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Curva de niveles: pasar del nivel n al n + 1 cuesta base + incremento * n de experiencia.
+ * Con incremento 0 todos los niveles cuestan lo mismo.
+ */
+@Component
+public class CurvaNiveles {
+    
+    /**
+     * Nivel alcanzado, porcentaje recorrido del nivel (0-99) y experiencia total
+     * con la que se llega al siguiente
+     */
+    public record Nivel(int nivel, int progreso, long expSiguienteNivel) {}
+    
+    @Value("${niveles.exp-base:100}")
+    private long base;
+    
+    @Value("${niveles.exp-incremento:0}")
+    private long incremento;
+    
+    @PostConstruct
+    void validar() {
+        if (base <= 0 || incremento < 0) {
+            throw new IllegalStateException("Curva de niveles no válida: base " + base + ", incremento " + incremento);
+        }
+    }
+    
+    public Nivel calcular(Integer exp) {
+        long total = exp == null ? 0 : Math.max(exp, 0);
+        long nivel = nivelDe(total);
+        long actual = umbral(nivel);
+        long siguiente = umbral(nivel + 1);
+        return new Nivel((int) nivel, (int) ((total - actual) * 100 / (siguiente - actual)), siguiente);
+    }
+    
+    /**
+     * Experiencia total necesaria para llegar al nivel n
+     */
+    long umbral(long n) {
+        return base * n + incremento * n * (n - 1) / 2;
+    }
+    
+    private long nivelDe(long exp) {
+        if (incremento == 0) {
+            return exp / base;
+        }
+        // Raíz positiva de umbral(n) = exp, corregida por el redondeo de la raíz cuadrada
+        double b = base - incremento / 2.0;
+        long nivel = (long) ((-b + Math.sqrt(b * b + 2.0 * incremento * exp)) / incremento);
+        while (nivel > 0 && umbral(nivel) > exp) {
+            nivel--;
+        }
+        while (umbral(nivel + 1) <= exp) {
+            nivel++;
+        }
+        return nivel;
+    }
+}
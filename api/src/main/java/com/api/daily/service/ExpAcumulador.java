@@ -0,0 +1,172 @@
+package com.api.daily.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Acumula la experiencia ganada por usuario y la vuelca a la base de datos por lotes,
+ * en vez de escribir la fila del usuario en cada misión completada. Cada volcado va en
+ * su propia transacción, nunca en la de la petición que suma la experiencia.
+ * Solo se usa con exp.write-behind.habilitado=true.
+ */
+@Component
+public class ExpAcumulador {
+    
+    private static final Logger log = LoggerFactory.getLogger(ExpAcumulador.class);
+    private static final int FILAS_POR_SENTENCIA = 1000;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${exp.write-behind.habilitado:false}")
+    private boolean habilitado;
+    
+    @Value("${exp.write-behind.umbral:5000}")
+    private int umbral;
+    
+    // Experiencia aún no enviada, por usuario
+    private final ConcurrentHashMap<Long, Long> pendientes = new ConcurrentHashMap<>();
+    
+    // Experiencia que se está escribiendo en este momento
+    private final ConcurrentHashMap<Long, Long> enVuelo = new ConcurrentHashMap<>();
+    
+    private final ReentrantLock volcando = new ReentrantLock();
+    
+    // Volcados pedidos al alcanzar el umbral, fuera del hilo de la petición
+    private final ExecutorService volcador = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "volcado-exp");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    private final AtomicBoolean volcadoPedido = new AtomicBoolean();
+    
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+    
+    /**
+     * Suma experiencia pendiente a un usuario. Si hay transacción activa se suma al
+     * confirmarse. Al alcanzar el umbral se pide un volcado sin esperar al intervalo.
+     */
+    public void sumar(Long idUsuario, int exp) {
+        if (exp <= 0) {
+            return;
+        }
+        Transacciones.despuesDeConfirmar(() -> {
+            pendientes.merge(idUsuario, (long) exp, Long::sum);
+            if (pendientes.size() >= umbral && volcadoPedido.compareAndSet(false, true)) {
+                volcador.execute(() -> {
+                    volcadoPedido.set(false);
+                    volcar();
+                });
+            }
+        });
+    }
+    
+    /**
+     * Experiencia de un usuario que todavía no está en la base de datos
+     */
+    public int getPendiente(Long idUsuario) {
+        return (int) (pendientes.getOrDefault(idUsuario, 0L) + enVuelo.getOrDefault(idUsuario, 0L));
+    }
+    
+    /**
+     * Hace una lectura de la base de datos sin volcados mientras dura, y le pasa la
+     * experiencia pendiente al empezar: lo leído más lo pendiente es la experiencia de
+     * cada usuario en ese momento. Los volcados esperan a que termine.
+     */
+    public <T> T leerSinVolcar(Function<Map<Long, Long>, T> lectura) {
+        volcando.lock();
+        try {
+            Map<Long, Long> pendiente = new HashMap<>(pendientes);
+            enVuelo.forEach((idUsuario, exp) -> pendiente.merge(idUsuario, exp, Long::sum));
+            return lectura.apply(pendiente);
+        } finally {
+            volcando.unlock();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${exp.write-behind.intervalo-ms:1000}")
+    public void volcar() {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        volcando.lock();
+        try {
+            volcarPendientes();
+        } finally {
+            volcando.unlock();
+        }
+    }
+    
+    @PreDestroy
+    public void cerrar() {
+        volcador.shutdown();
+        volcar();
+    }
+    
+    private void volcarPendientes() {
+        for (Long idUsuario : pendientes.keySet()) {
+            Long exp = pendientes.remove(idUsuario);
+            if (exp != null) {
+                enVuelo.merge(idUsuario, exp, Long::sum);
+            }
+        }
+        
+        // Una transacción nueva por sentencia; lo escrito sale de enVuelo al confirmarse
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        List<Map.Entry<Long, Long>> lote = new ArrayList<>(enVuelo.entrySet());
+        for (int desde = 0; desde < lote.size(); desde += FILAS_POR_SENTENCIA) {
+            List<Map.Entry<Long, Long>> trozo = lote.subList(desde, Math.min(desde + FILAS_POR_SENTENCIA, lote.size()));
+            try {
+                transaccion.executeWithoutResult(estado -> actualizar(trozo));
+            } catch (RuntimeException e) {
+                log.error("No se pudo volcar la experiencia de {} usuarios, se reintentará", trozo.size(), e);
+                for (Map.Entry<Long, Long> entrada : trozo) {
+                    pendientes.merge(entrada.getKey(), entrada.getValue(), Long::sum);
+                }
+            }
+            for (Map.Entry<Long, Long> entrada : trozo) {
+                enVuelo.remove(entrada.getKey());
+            }
+        }
+    }
+    
+    private void actualizar(List<Map.Entry<Long, Long>> trozo) {
+        StringBuilder sql = new StringBuilder(
+            "UPDATE usuario u SET exp = COALESCE(u.exp, 0) + v.exp, version = u.version + 1, " +
+            "actualizado = LOCALTIMESTAMP FROM (VALUES ");
+        Object[] parametros = new Object[trozo.size() * 2];
+        for (int i = 0; i < trozo.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?::bigint, ?::integer)");
+            parametros[i * 2] = trozo.get(i).getKey();
+            parametros[i * 2 + 1] = trozo.get(i).getValue().intValue();
+        }
+        sql.append(") AS v(id_usuario, exp) WHERE u.id_usuario = v.id_usuario");
+        jdbcTemplate.update(sql.toString(), parametros);
+    }
+}
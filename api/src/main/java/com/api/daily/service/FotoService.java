@@ -0,0 +1,228 @@
+package com.api.daily.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Almacén de fotos en disco direccionado por contenido: cada foto se guarda con
+ * el SHA-256 de sus bytes como nombre y las entidades solo guardan ese hash.
+ * Solo se admiten imágenes que ImageIO reconoce en uno de los formatos de TIPOS, y se
+ * sirven con el tipo MIME de ese formato. Como el contenido de una referencia no cambia,
+ * el tipo se cachea por referencia al guardarla o la primera vez que se sirve; las
+ * miniaturas son siempre JPEG.
+ */
+@Service
+public class FotoService {
+    
+    private static final Pattern REFERENCIA = Pattern.compile("[0-9a-f]{64}");
+    private static final long TROZO = 1 << 20;
+    private static final String TIPO_DESCONOCIDO = "application/octet-stream";
+    private static final String TIPO_MINIATURA = "image/jpeg";
+    
+    // Formatos admitidos (nombre de ImageIO en minúsculas) y su tipo MIME
+    private static final Map<String, String> TIPOS = Map.of(
+        "jpeg", "image/jpeg",
+        "png", "image/png",
+        "gif", "image/gif");
+    
+    private final Path directorio;
+    private final MiniaturaService miniaturaService;
+    
+    // Tipo MIME de cada original, por referencia
+    private final Cache<String, String> tipos;
+    
+    public FotoService(@Value("${fotos.directorio:fotos}") String directorio,
+                       @Value("${fotos.tipos.cache.maximo:100000}") long maximoTipos,
+                       MiniaturaService miniaturaService,
+                       MeterRegistry meterRegistry) throws IOException {
+        this.directorio = Paths.get(directorio).toAbsolutePath();
+        this.miniaturaService = miniaturaService;
+        this.tipos = Caffeine.newBuilder().maximumSize(maximoTipos).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tipos, "fotos.tipo");
+        Files.createDirectories(this.directorio.resolve("tmp"));
+    }
+    
+    /**
+     * Indica si un texto tiene el formato de una referencia a foto
+     */
+    public boolean esReferencia(String referencia) {
+        return referencia != null && REFERENCIA.matcher(referencia).matches();
+    }
+    
+    /**
+     * Guarda una foto y devuelve su referencia. Si ya existía no se duplica.
+     * @param entrada Bytes de la foto; no se cierra
+     * @return Hash SHA-256 en hexadecimal, vacío si no es una imagen en un formato admitido
+     */
+    public Optional<String> guardar(InputStream entrada) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        
+        Path temporal = Files.createTempFile(directorio.resolve("tmp"), "subida", ".tmp");
+        try {
+            ReadableByteChannel origen = Channels.newChannel(new DigestInputStream(entrada, sha256));
+            try (FileChannel destino = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                long posicion = 0;
+                long leidos;
+                while ((leidos = destino.transferFrom(origen, posicion, TROZO)) > 0) {
+                    posicion += leidos;
+                }
+            }
+            
+            Optional<String> formato = formato(temporal);
+            if (formato.isEmpty()) {
+                return Optional.empty();
+            }
+            
+            String referencia = HexFormat.of().formatHex(sha256.digest());
+            tipos.put(referencia, TIPOS.get(formato.get()));
+            Path ruta = ruta(referencia);
+            if (!Files.exists(ruta)) {
+                Files.createDirectories(ruta.getParent());
+                Files.move(temporal, ruta, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                miniaturaService.generar(ruta);
+            }
+            return Optional.of(referencia);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+    
+    /**
+     * Ruta de una foto guardada
+     * @return Vacío si la referencia no es válida o la foto no existe
+     */
+    public Optional<Path> getRuta(String referencia) {
+        if (!esReferencia(referencia)) {
+            return Optional.empty();
+        }
+        Path ruta = ruta(referencia);
+        return Files.isRegularFile(ruta) ? Optional.of(ruta) : Optional.empty();
+    }
+    
+    /**
+     * Ruta de la versión de una foto más adecuada para mostrarla con el tamaño indicado:
+     * la miniatura más pequeña que lo cubre o, si no la hay, el original
+     * @return Vacío si la referencia no es válida o la foto no existe
+     */
+    public Optional<Path> getRuta(String referencia, int tamano) {
+        return getRuta(referencia).map(original ->
+            miniaturaService.getMiniatura(original, tamano).orElse(original));
+    }
+    
+    /**
+     * Indica si la versión servida para un tamaño es provisional: el original porque las
+     * miniaturas aún no se han generado. Cuando existan, la misma URL servirá otro fichero.
+     */
+    public boolean esProvisional(Path servida) {
+        return esReferencia(servida.getFileName().toString()) && !miniaturaService.isGeneradas(servida);
+    }
+    
+    /**
+     * Tipo MIME de una foto o miniatura servida por getRuta; application/octet-stream si
+     * no es una imagen admitida (fotos guardadas antes de validarlas). Solo se lee la
+     * cabecera del fichero la primera vez que se pide un original.
+     */
+    public String getTipo(Path ruta) throws IOException {
+        String nombre = ruta.getFileName().toString();
+        if (!esReferencia(nombre)) {
+            return TIPO_MINIATURA;
+        }
+        String tipo = tipos.getIfPresent(nombre);
+        if (tipo == null) {
+            tipo = formato(ruta).map(TIPOS::get).orElse(TIPO_DESCONOCIDO);
+            tipos.put(nombre, tipo);
+        }
+        return tipo;
+    }
+    
+    /**
+     * Envía un tramo del fichero con FileChannel.transferTo, sin copiarlo a memoria
+     */
+    public void enviar(Path ruta, long inicio, long longitud, OutputStream salida) throws IOException {
+        WritableByteChannel destino = Channels.newChannel(salida);
+        try (FileChannel origen = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            long posicion = inicio;
+            long restante = longitud;
+            while (restante > 0) {
+                long enviados = origen.transferTo(posicion, restante, destino);
+                if (enviados <= 0) {
+                    break;
+                }
+                posicion += enviados;
+                restante -= enviados;
+            }
+        }
+    }
+    
+    /**
+     * Formato de la imagen si ImageIO la reconoce, está entre los admitidos y se pueden
+     * leer sus dimensiones. No se decodifican los píxeles.
+     */
+    private static Optional<String> formato(Path ruta) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(ruta.toFile())) {
+            if (entrada == null) {
+                return Optional.empty();
+            }
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+            if (!lectores.hasNext()) {
+                return Optional.empty();
+            }
+            ImageReader lector = lectores.next();
+            try {
+                String formato = lector.getFormatName().toLowerCase(Locale.ROOT);
+                if (!TIPOS.containsKey(formato)) {
+                    return Optional.empty();
+                }
+                lector.setInput(entrada, true, true);
+                if (lector.getWidth(0) <= 0 || lector.getHeight(0) <= 0) {
+                    return Optional.empty();
+                }
+                return Optional.of(formato);
+            } catch (IOException | RuntimeException e) {
+                // Cabecera corrupta o truncada
+                return Optional.empty();
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+    
+    // Se reparte en subdirectorios por los dos primeros caracteres del hash
+    private Path ruta(String referencia) {
+        return directorio.resolve(referencia.substring(0, 2)).resolve(referencia);
+    }
+}
@@ -0,0 +1,140 @@
+package com.api.daily.service;
+
+import com.api.daily.model.Mision;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido inmutable sobre el título y el texto de las misiones.
+ * Los términos se guardan sin tildes, en minúsculas y ordenados, de modo que
+ * cada palabra de la consulta se busca como prefijo (para autocompletar).
+ */
+final class IndiceBusqueda {
+    
+    private static final double PESO_TITULO = 3.0;
+    private static final double PESO_TEXTO = 1.0;
+    // Una coincidencia por prefijo puntúa menos que la palabra exacta
+    private static final double FACTOR_PREFIJO = 0.5;
+    
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Set<String> VACIAS = Set.of(
+        "a", "al", "con", "de", "del", "el", "en", "es", "la", "las", "lo", "los",
+        "o", "para", "por", "que", "se", "su", "sus", "tu", "tus", "un", "una", "y");
+    
+    // término -> (idMision -> peso del término en la misión)
+    private final NavigableMap<String, Map<Long, Double>> terminos = new TreeMap<>();
+    private final Map<Long, Mision> misiones = new HashMap<>();
+    
+    IndiceBusqueda(List<Mision> catalogo) {
+        for (Mision mision : catalogo) {
+            misiones.put(mision.getIdMision(), mision);
+            indexar(mision.getIdMision(), mision.getTituloMision(), PESO_TITULO);
+            indexar(mision.getIdMision(), mision.getTextoMision(), PESO_TEXTO);
+        }
+    }
+    
+    /**
+     * Misiones que contienen todas las palabras de la consulta, de más a menos relevante
+     * @param desde Número de resultados a saltar
+     * @param limite Número máximo de resultados
+     */
+    List<Mision> buscar(String consulta, int desde, int limite) {
+        List<String> palabras = tokenizar(consulta);
+        if (palabras.isEmpty()) {
+            return List.of();
+        }
+        // Las palabras vacías solo cuentan si son la última, que puede estar a medio escribir
+        List<String> significativas = new ArrayList<>();
+        for (int i = 0; i < palabras.size(); i++) {
+            String palabra = palabras.get(i);
+            if (i == palabras.size() - 1 || !VACIAS.contains(palabra)) {
+                significativas.add(palabra);
+            }
+        }
+        
+        Map<Long, Double> puntuaciones = null;
+        for (String palabra : significativas) {
+            Map<Long, Double> coincidencias = puntuar(palabra);
+            if (puntuaciones == null) {
+                puntuaciones = coincidencias;
+            } else {
+                Map<Long, Double> interseccion = new HashMap<>();
+                for (Map.Entry<Long, Double> e : puntuaciones.entrySet()) {
+                    Double puntos = coincidencias.get(e.getKey());
+                    if (puntos != null) {
+                        interseccion.put(e.getKey(), e.getValue() + puntos);
+                    }
+                }
+                puntuaciones = interseccion;
+            }
+            if (puntuaciones.isEmpty()) {
+                return List.of();
+            }
+        }
+        
+        return puntuaciones.entrySet().stream()
+            .sorted(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.comparingByKey()))
+            .skip(desde)
+            .limit(limite)
+            .map(e -> misiones.get(e.getKey()))
+            .toList();
+    }
+    
+    /**
+     * Normaliza un texto a términos: sin tildes, en minúsculas y separado por
+     * cualquier carácter que no sea letra o número
+     */
+    static List<String> tokenizar(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return List.of();
+        }
+        String normalizado = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD))
+            .replaceAll("")
+            .toLowerCase(Locale.ROOT);
+        return Arrays.stream(SEPARADORES.split(normalizado))
+            .filter(t -> !t.isEmpty())
+            .toList();
+    }
+    
+    private void indexar(Long idMision, String texto, double peso) {
+        for (String termino : tokenizar(texto)) {
+            if (!VACIAS.contains(termino)) {
+                terminos.computeIfAbsent(termino, t -> new LinkedHashMap<>())
+                    .merge(idMision, peso, Double::sum);
+            }
+        }
+    }
+    
+    /**
+     * Puntuación de cada misión para una palabra: la mejor de los términos que
+     * empiezan por ella, ponderando por lo poco frecuente que es el término
+     */
+    private Map<Long, Double> puntuar(String palabra) {
+        Map<Long, Double> puntuaciones = new HashMap<>();
+        // U+FFFF no aparece en los términos: acota todos los que empiezan por la palabra
+        for (Map.Entry<String, Map<Long, Double>> termino :
+                terminos.subMap(palabra, true, palabra + '\uffff', false).entrySet()) {
+            Map<Long, Double> apariciones = termino.getValue();
+            double idf = Math.log(1.0 + (double) misiones.size() / apariciones.size());
+            double factor = termino.getKey().equals(palabra) ? 1.0 : FACTOR_PREFIJO;
+            for (Map.Entry<Long, Double> e : apariciones.entrySet()) {
+                puntuaciones.merge(e.getKey(), Math.log1p(e.getValue()) * idf * factor, Math::max);
+            }
+        }
+        return puntuaciones;
+    }
+}
@@ -0,0 +1,176 @@
+package com.api.daily.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Genera en segundo plano versiones reducidas de cada foto subida (solo con ImageIO)
+ * y las guarda junto al original como {hash}_{tamaño}.jpg. Antes de decodificar una foto
+ * se leen sus dimensiones y, si supera fotos.miniaturas.max-pixeles, no se generan.
+ */
+@Service
+public class MiniaturaService {
+    
+    private static final Logger log = LoggerFactory.getLogger(MiniaturaService.class);
+    
+    private final int[] tamanos;
+    private final long maxPixeles;
+    private final ThreadPoolExecutor executor;
+    
+    public MiniaturaService(@Value("${fotos.miniaturas.tamanos:64,256,1024}") int[] tamanos,
+                            @Value("${fotos.miniaturas.hilos:2}") int hilos,
+                            @Value("${fotos.miniaturas.cola:100}") int cola,
+                            @Value("${fotos.miniaturas.max-pixeles:40000000}") long maxPixeles) {
+        this.tamanos = Arrays.stream(tamanos).sorted().toArray();
+        this.maxPixeles = maxPixeles;
+        // Si la cola está llena se descarta la tarea: la miniatura se pedirá de nuevo al servirla
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola), new ThreadPoolExecutor.DiscardPolicy());
+        ImageIO.setUseCache(false);
+    }
+    
+    /**
+     * Encola la generación de las miniaturas de una foto
+     */
+    public void generar(Path original) {
+        executor.execute(() -> {
+            try {
+                generarAhora(original);
+            } catch (IOException | RuntimeException e) {
+                log.warn("No se pudieron generar las miniaturas de {}", original.getFileName(), e);
+            }
+        });
+    }
+    
+    /**
+     * Elige la miniatura más pequeña que cubre el tamaño pedido.
+     * Si aún no existe se encola su generación y se devuelve vacío para servir el original.
+     * @param original Ruta de la foto original
+     * @param tamano Lado mayor deseado en píxeles
+     */
+    public Optional<Path> getMiniatura(Path original, int tamano) {
+        for (int t : tamanos) {
+            if (t >= tamano) {
+                Path miniatura = ruta(original, t);
+                if (Files.isRegularFile(miniatura)) {
+                    return Optional.of(miniatura);
+                }
+                if (!Files.exists(ruta(original, tamanos[0]))) {
+                    generar(original);
+                }
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * Indica si ya se han generado las miniaturas de la foto. La más pequeña se escribe
+     * la última, así que mientras no existe aún pueden aparecer otras.
+     */
+    public boolean isGeneradas(Path original) {
+        return Files.isRegularFile(ruta(original, tamanos[0]));
+    }
+    
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdownNow();
+    }
+    
+    private void generarAhora(Path original) throws IOException {
+        BufferedImage imagen = leer(original);
+        if (imagen == null) {
+            return;
+        }
+        
+        // De mayor a menor, reduciendo cada vez desde la anterior. Los tamaños que no
+        // reducen el original no se generan (se sirve el original), salvo el más pequeño
+        BufferedImage origen = imagen;
+        for (int i = tamanos.length - 1; i >= 0; i--) {
+            int lado = Math.max(origen.getWidth(), origen.getHeight());
+            if (lado > tamanos[i]) {
+                origen = reducir(origen, tamanos[i]);
+            } else if (i > 0) {
+                continue;
+            }
+            escribir(origen, ruta(original, tamanos[i]));
+        }
+    }
+    
+    /**
+     * Decodifica la foto si sus dimensiones no superan maxPixeles
+     * @return null si no es una imagen o es demasiado grande
+     */
+    private BufferedImage leer(Path original) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> lectores = entrada != null ? ImageIO.getImageReaders(entrada) : null;
+            if (lectores == null || !lectores.hasNext()) {
+                return null;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                long pixeles = (long) lector.getWidth(0) * lector.getHeight(0);
+                if (pixeles > maxPixeles) {
+                    log.debug("Sin miniaturas para {}: {} píxeles superan el máximo de {}",
+                             original.getFileName(), pixeles, maxPixeles);
+                    return null;
+                }
+                return lector.read(0);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+    
+    private static BufferedImage reducir(BufferedImage imagen, int tamano) {
+        double escala = (double) tamano / Math.max(imagen.getWidth(), imagen.getHeight());
+        int ancho = Math.max(1, (int) Math.round(imagen.getWidth() * escala));
+        int alto = Math.max(1, (int) Math.round(imagen.getHeight() * escala));
+        
+        BufferedImage reducida = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = reducida.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(imagen, 0, 0, ancho, alto, Color.WHITE, null);
+        } finally {
+            g.dispose();
+        }
+        return reducida;
+    }
+    
+    private static void escribir(BufferedImage imagen, Path destino) throws IOException {
+        if (imagen.getType() != BufferedImage.TYPE_INT_RGB) {
+            imagen = reducir(imagen, Math.max(imagen.getWidth(), imagen.getHeight()));
+        }
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+        ImageIO.write(imagen, "jpg", temporal.toFile());
+        Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    private static Path ruta(Path original, int tamano) {
+        return original.resolveSibling(original.getFileName() + "_" + tamano + ".jpg");
+    }
+}
@@ -1,55 +1,90 @@
 package com.api.daily.service;
 
 import com.api.daily.model.Mision;
-import com.api.daily.repository.MisionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Service
 public class MisionDiariaService {
     
     @Autowired
-    private MisionRepository misionRepository;
+    private CatalogoMisiones catalogoMisiones;
+    
+    @Autowired
+    private PlanificadorMisionesDiarias planificador;
+    
+    @Autowired
+    private MisionesCompletadas misionesCompletadas;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${misiones.diarias.zona-horaria:Europe/Madrid}")
+    private ZoneId zonaHoraria;
+    
+    // Selección del día cacheada; se sustituye entera, nunca se modifica
+    private volatile SeleccionDiaria seleccion;
+    
+    // El recálculo puede consultar la base de datos: lock para no fijar hilos virtuales
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    
+    private AciertosCache aciertos;
+    
+    @PostConstruct
+    void registrarMetricas() {
+        aciertos = new AciertosCache(meterRegistry, "misiones.diarias");
+    }
     
     /**
-     * Obtiene las 3 misiones diarias basadas en la fecha actual como semilla
-     * @return Lista de 3 misiones diarias
+     * Obtiene las misiones diarias de hoy, planificadas por PlanificadorMisionesDiarias
+     * @return Lista de misiones diarias
      */
     public List<Mision> getMisionesDiarias() {
-        // Obtener todas las misiones excepto la ID 1
-        List<Mision> todasLasMisiones = misionRepository.findAll()
-                .stream()
-                .filter(m -> m.getIdMision() != 1L)
-                .collect(Collectors.toList());
-        
-        // Si hay 3 o menos misiones, devolver todas
-        if (todasLasMisiones.size() <= 3) {
-            return todasLasMisiones;
+        return getSeleccion().misiones();
+    }
+    
+    /**
+     * Misiones diarias de hoy para un usuario: las que completó otro día se sustituyen por
+     * otras que no ha hecho, sorteadas por peso con una semilla del día y el usuario para
+     * que no cambien entre peticiones. Las que completa hoy se mantienen.
+     * @param idUsuario ID del usuario
+     * @return Lista de misiones diarias del usuario
+     */
+    public List<Mision> getMisionesDiarias(Long idUsuario) {
+        List<Mision> diarias = getMisionesDiarias();
+        MisionesCompletadas.Completadas completadas = misionesCompletadas.getCompletadas(idUsuario);
+        if (diarias.stream().noneMatch(m -> completadas.antesDeHoy(m.getIdMision()))) {
+            return diarias;
         }
         
-        // Obtener la fecha actual como semilla
-        LocalDate hoy = LocalDate.now();
-        long semilla = hoy.getYear() * 10000L + hoy.getMonthValue() * 100L + hoy.getDayOfMonth();
-        
-        // Crear Random con la semilla del día
-        Random random = new Random(semilla);
-        
-        // Seleccionar 3 misiones aleatorias pero consistentes para el día
-        List<Mision> misionesDiarias = new ArrayList<>();
-        List<Mision> misionesDisponibles = new ArrayList<>(todasLasMisiones);
-        
-        for (int i = 0; i < 3 && !misionesDisponibles.isEmpty(); i++) {
-            int indiceAleatorio = random.nextInt(misionesDisponibles.size());
-            misionesDiarias.add(misionesDisponibles.remove(indiceAleatorio));
+        Set<Long> elegidas = diarias.stream().map(Mision::getIdMision).collect(Collectors.toSet());
+        List<Mision> candidatas = catalogoMisiones.getMisiones().stream()
+                .filter(m -> m.getPeso() != null && m.getPeso() > 0)
+                .filter(m -> !elegidas.contains(m.getIdMision()) && !completadas.antesDeHoy(m.getIdMision()))
+                .collect(Collectors.toCollection(ArrayList::new));
+        Random random = new Random(getHoy().toEpochDay() * 31 + idUsuario);
+        List<Mision> personalizadas = new ArrayList<>(diarias.size());
+        for (Mision mision : diarias) {
+            if (!completadas.antesDeHoy(mision.getIdMision())) {
+                personalizadas.add(mision);
+            } else if (!candidatas.isEmpty()) {
+                personalizadas.add(PlanificadorMisionesDiarias.sortear(candidatas, Mision::getPeso, random));
+            }
         }
-        
-        return misionesDiarias;
+        return personalizadas;
     }
     
     /**
@@ -58,8 +93,83 @@ public class MisionDiariaService {
      * @return true si la misión es una misión diaria de hoy
      */
     public boolean esMisionDiaria(Long idMision) {
-        List<Mision> misionesDiarias = getMisionesDiarias();
-        return misionesDiarias.stream()
-                .anyMatch(m -> m.getIdMision().equals(idMision));
+        return getSeleccion().ids().contains(idMision);
+    }
+    
+    /**
+     * Verifica si una misión está en las misiones diarias de hoy del usuario
+     */
+    public boolean esMisionDiaria(Long idMision, Long idUsuario) {
+        return getMisionesDiarias(idUsuario).stream().anyMatch(m -> m.getIdMision().equals(idMision));
+    }
+    
+    /**
+     * Descarta la selección cacheada para que se vuelva a leer en la próxima consulta.
+     * Se llama cuando cambia el catálogo de misiones; la planificación no cambia.
+     */
+    public void invalidarCache() {
+        cerrojo.lock();
+        try {
+            seleccion = null;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+    
+    /**
+     * Fecha de hoy en la zona horaria configurada
+     */
+    public LocalDate getHoy() {
+        return LocalDate.now(zonaHoraria);
+    }
+    
+    private SeleccionDiaria getSeleccion() {
+        LocalDate hoy = getHoy();
+        String hashCatalogo = catalogoMisiones.getCatalogo().hash();
+        SeleccionDiaria actual = seleccion;
+        if (actual != null && actual.vigente(hoy, hashCatalogo)) {
+            aciertos.acierto();
+            return actual;
+        }
+        cerrojo.lock();
+        try {
+            actual = seleccion;
+            if (actual == null || !actual.vigente(hoy, hashCatalogo)) {
+                aciertos.fallo();
+                actual = calcularSeleccion(hoy, hashCatalogo);
+                seleccion = actual;
+            } else {
+                aciertos.acierto();
+            }
+            return actual;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+    
+    private SeleccionDiaria calcularSeleccion(LocalDate hoy, String hashCatalogo) {
+        List<Long> ids = planificador.getMisiones(hoy);
+        if (ids.isEmpty()) {
+            // Aún no se ha planificado hoy (primer arranque)
+            planificador.planificar(hoy);
+            ids = planificador.getMisiones(hoy);
+        }
+        List<Mision> misionesDiarias = ids.stream()
+                .map(catalogoMisiones::getMision)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+        return new SeleccionDiaria(hoy, hashCatalogo, misionesDiarias);
+    }
+    
+    // Se vuelve a calcular al cambiar el día o el catálogo (también si lo ha cambiado otro nodo)
+    private record SeleccionDiaria(LocalDate fecha, String hashCatalogo, List<Mision> misiones, Set<Long> ids) {
+        SeleccionDiaria(LocalDate fecha, String hashCatalogo, List<Mision> misiones) {
+            this(fecha, hashCatalogo, List.copyOf(misiones),
+                 misiones.stream().map(Mision::getIdMision).collect(Collectors.toUnmodifiableSet()));
+        }
+        
+        boolean vigente(LocalDate hoy, String hashCatalogo) {
+            return fecha.equals(hoy) && this.hashCatalogo.equals(hashCatalogo);
+        }
     }
 }
\ No newline at end of file
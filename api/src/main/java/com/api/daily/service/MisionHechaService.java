@@ -1,34 +1,116 @@
 package com.api.daily.service;
 
+import com.api.daily.dto.ActividadPeriodo;
+import com.api.daily.dto.CompletacionInsertada;
+import com.api.daily.dto.CompletacionOffline;
+import com.api.daily.dto.Cursor;
+import com.api.daily.dto.EventoSalida;
+import com.api.daily.dto.MisionCompletadaDTO;
+import com.api.daily.dto.NombreUsuario;
+import com.api.daily.dto.PaginaDTO;
+import com.api.daily.dto.PeriodoActividad;
+import com.api.daily.dto.ResultadoSincronizacion;
+import com.api.daily.dto.ResumenActividad;
+import com.api.daily.dto.ResultadoSincronizacion.Estado;
+import com.api.daily.dto.VersionHistorial;
 import com.api.daily.model.Mision;
 import com.api.daily.model.MisionHecha;
-import com.api.daily.model.Usuario;
 import com.api.daily.repository.MisionHechaRepository;
-import com.api.daily.repository.MisionRepository;
 import com.api.daily.repository.UsuarioRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class MisionHechaService {
     
+    // Tolerancia con el reloj del móvil para las fechas de las completaciones offline
+    private static final Duration MARGEN_RELOJ = Duration.ofMinutes(5);
+    
     @Autowired
     private MisionHechaRepository misionHechaRepository;
     
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private RachaService rachaService;
+    
+    @Autowired
+    private ExpAcumulador expAcumulador;
+    
+    @Autowired
+    private ClasificacionService clasificacionService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     @Autowired
     private UsuarioRepository usuarioRepository;
     
     @Autowired
-    private MisionRepository misionRepository;
+    private CatalogoMisiones catalogoMisiones;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private FotoService fotoService;
     
     @Autowired
-    private UsuarioService usuarioService;
+    private MisionesCompletadas misionesCompletadas;
     
-    public List<MisionHecha> getAllMisionesHechas() {
-        return misionHechaRepository.findAll();
+    @Autowired
+    private BandejaSalida bandejaSalida;
+    
+    @Value("${misiones.diarias.zona-horaria:Europe/Madrid}")
+    private ZoneId zonaHoraria;
+    
+    public PaginaDTO<MisionHecha> getMisionesHechas(String cursor, int limit) {
+        long desde = cursor == null ? 0L : Long.parseLong(Cursor.decodificar(cursor, 1)[0]);
+        List<MisionHecha> filas = misionHechaRepository.findByIdKeyGreaterThanOrderByIdKeyAsc(
+            desde, Limit.of(limit + 1));
+        return PaginaDTO.de(filas, limit, ultima -> Cursor.codificar(ultima.getIdKey()));
+    }
+    
+    /**
+     * Recorre todas las misiones hechas (o las de una misión) sin acumularlas en memoria
+     * @param idMision ID de la misión, o null para todas
+     * @param consumidor Recibe cada fila; la entidad se desvincula después
+     */
+    @Transactional(readOnly = true)
+    public void exportarMisionesHechas(Long idMision, Consumer<MisionHecha> consumidor) {
+        try (Stream<MisionHecha> filas = idMision == null
+                ? misionHechaRepository.streamAll()
+                : misionHechaRepository.streamByIdMision(idMision)) {
+            filas.forEach(misionHecha -> {
+                consumidor.accept(misionHecha);
+                entityManager.detach(misionHecha);
+            });
+        }
     }
     
     public Optional<MisionHecha> getMisionHechaById(Long id) {
@@ -39,49 +121,297 @@ public class MisionHechaService {
         return misionHechaRepository.findByIdUsuario(idUsuario);
     }
     
-    public List<MisionHecha> getMisionesHechasByMision(Long idMision) {
-        return misionHechaRepository.findByIdMision(idMision);
+    public PaginaDTO<MisionHecha> getMisionesHechasByMision(Long idMision, String cursor, int limit) {
+        List<MisionHecha> filas;
+        if (cursor == null) {
+            filas = misionHechaRepository.findByIdMisionOrderByFechaAscIdKeyAsc(idMision, Limit.of(limit + 1));
+        } else {
+            String[] claves = Cursor.decodificar(cursor, 2);
+            LocalDateTime fecha;
+            try {
+                fecha = LocalDateTime.parse(claves[0]);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Cursor no válido", e);
+            }
+            filas = misionHechaRepository.findByIdMisionDespuesDe(
+                idMision, fecha, Long.parseLong(claves[1]), Limit.of(limit + 1));
+        }
+        return PaginaDTO.de(filas, limit,
+            ultima -> Cursor.codificar(ultima.getFecha(), ultima.getIdKey()));
     }
     
-    public Optional<MisionHecha> completarMision(Long idUsuario, Long idMision, String fotoMision) {
-        // Verificar que el usuario y la misión existen
-        Optional<Usuario> usuarioOpt = usuarioRepository.findById(idUsuario);
-        Optional<Mision> misionOpt = misionRepository.findById(idMision);
+    /**
+     * Completa una misión: inserta la misión hecha y suma la experiencia en una transacción.
+     * La racha y el aviso por SSE se aplican después desde la bandeja de salida.
+     * Si se repite la petición con la misma clave de idempotencia devuelve la original.
+     * @return La misión hecha, vacío si el usuario o la misión no existen o ya estaba completada
+     */
+    @Transactional
+    public Optional<MisionHecha> completarMision(Long idUsuario, Long idMision, String fotoMision,
+                                                 String claveIdempotencia) {
+        // Ya completada según el mapa en memoria: se rechaza sin intentar la inserción
+        if (misionesCompletadas.estaCompletada(idUsuario, idMision)) {
+            return rechazar(idUsuario, claveIdempotencia);
+        }
+        
+        // PostgreSQL guarda microsegundos; truncar para devolver lo mismo que se guarda
+        LocalDateTime fecha = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Optional<CompletacionInsertada> insertada = expAcumulador.isHabilitado()
+            ? misionHechaRepository.insertarCompletacionSinExp(idUsuario, idMision, fecha, fotoMision, claveIdempotencia)
+            : misionHechaRepository.insertarCompletacion(idUsuario, idMision, fecha, fotoMision, claveIdempotencia);
         
-        if (usuarioOpt.isEmpty() || misionOpt.isEmpty()) {
-            return Optional.empty();
+        if (insertada.isEmpty()) {
+            return rechazar(idUsuario, claveIdempotencia);
         }
+        meterRegistry.counter("misiones.completadas").increment();
+        misionesCompletadas.marcar(idUsuario, idMision, fecha);
+        bandejaSalida.avisar();
         
-        // Verificar que no haya completado ya esta misión
-        if (misionHechaRepository.existsByIdUsuarioAndIdMision(idUsuario, idMision)) {
-            return Optional.empty();
+        // En modo write-behind la experiencia se acumula al confirmar y se suma al volcar
+        if (expAcumulador.isHabilitado()) {
+            expAcumulador.sumar(idUsuario, insertada.get().getExperiencia());
         }
         
-        // Crear la misión hecha
-        MisionHecha misionHecha = new MisionHecha(idUsuario, idMision);
-        misionHecha.setFotoMision(fotoMision);
+        MisionHecha misionHecha = new MisionHecha(idUsuario, idMision, fotoMision);
+        misionHecha.setIdKey(insertada.get().getIdKey());
+        misionHecha.setFecha(fecha);
+        misionHecha.setClaveIdempotencia(claveIdempotencia);
         
-        // Añadir experiencia al usuario
-        usuarioService.addExpToUsuario(idUsuario, misionOpt.get().getExperenciaMision());
+        // Las clasificaciones están en memoria y se reconstruyen desde la base de datos,
+        // así que no pueden repetir eventos: se actualizan aquí y no desde la bandeja de salida
+        clasificacionService.registrarCompletacion(idUsuario, insertada.get().getExperiencia(), fecha);
         
-        return Optional.of(misionHechaRepository.save(misionHecha));
+        return Optional.of(misionHecha);
+    }
+    
+    /**
+     * Completación no insertada: si es el reintento de una petición ya aplicada devuelve
+     * la original, si no la misión ya estaba completada
+     */
+    private Optional<MisionHecha> rechazar(Long idUsuario, String claveIdempotencia) {
+        if (claveIdempotencia != null) {
+            Optional<MisionHecha> original =
+                misionHechaRepository.findByIdUsuarioAndClaveIdempotencia(idUsuario, claveIdempotencia);
+            if (original.isPresent()) {
+                meterRegistry.counter("misiones.completadas.rechazadas", "motivo", "reintento").increment();
+                return original;
+            }
+        }
+        meterRegistry.counter("misiones.completadas.rechazadas", "motivo", "duplicada").increment();
+        return Optional.empty();
     }
 
+    /**
+     * Sincroniza de golpe las misiones completadas sin conexión. Valida todo el lote con una
+     * consulta de usuarios y el catálogo en memoria, inserta en una sola sentencia y suma la
+     * experiencia con una sola actualización por usuario. Las rachas y los avisos se
+     * aplican después desde la bandeja de salida.
+     * @return Un resultado por completación, en el mismo orden
+     */
+    @Transactional
+    public List<ResultadoSincronizacion> sincronizar(List<CompletacionOffline> completaciones) {
+        LocalDateTime limite = LocalDateTime.now().plus(MARGEN_RELOJ);
+        Set<Long> usuarios = usuarioRepository.findByIdUsuarioIn(completaciones.stream()
+                .map(CompletacionOffline::idUsuario).filter(Objects::nonNull).collect(Collectors.toSet()))
+            .stream().map(NombreUsuario::getIdUsuario).collect(Collectors.toSet());
+        Map<String, MisionHecha> previas = porClave(completaciones.stream()
+            .map(CompletacionOffline::clave).filter(Objects::nonNull).collect(Collectors.toSet()));
+        
+        Estado[] estados = new Estado[completaciones.size()];
+        List<Integer> nuevas = new ArrayList<>();
+        // Clave -> usuario, de las claves ya vistas en este lote o sincronizadas antes
+        Map<String, Long> duenos = new HashMap<>();
+        previas.forEach((clave, previa) -> duenos.put(clave, previa.getIdUsuario()));
+        for (int i = 0; i < completaciones.size(); i++) {
+            CompletacionOffline c = completaciones.get(i);
+            Long dueno = c.clave() == null ? null : duenos.get(c.clave());
+            if (!esValida(c, usuarios, limite) || (dueno != null && !dueno.equals(c.idUsuario()))) {
+                estados[i] = Estado.NO_VALIDA;
+            } else if (dueno != null) {
+                estados[i] = Estado.REPETIDA;
+            } else if (misionesCompletadas.estaCompletada(c.idUsuario(), c.idMision())) {
+                duenos.put(c.clave(), c.idUsuario());
+                estados[i] = Estado.YA_COMPLETADA;
+            } else {
+                duenos.put(c.clave(), c.idUsuario());
+                nuevas.add(i);
+            }
+        }
+        
+        Insercion[] insertadas = insertar(nuevas.stream().map(completaciones::get).toList());
+        
+        Map<Long, Integer> expPorUsuario = new HashMap<>();
+        List<EventoSalida> eventos = new ArrayList<>();
+        List<String> creadas = new ArrayList<>();
+        for (int j = 0; j < nuevas.size(); j++) {
+            int i = nuevas.get(j);
+            CompletacionOffline c = completaciones.get(i);
+            Insercion insercion = insertadas[j];
+            // El usuario o la misión se han borrado después de validar el lote
+            if (!insercion.existe()) {
+                estados[i] = Estado.NO_VALIDA;
+                continue;
+            }
+            // ON CONFLICT: el usuario ya tenía la misión (u otra petición usó la clave a la vez)
+            if (!insercion.creada()) {
+                estados[i] = Estado.YA_COMPLETADA;
+                continue;
+            }
+            estados[i] = Estado.CREADA;
+            creadas.add(c.clave());
+            misionesCompletadas.marcar(c.idUsuario(), c.idMision(), c.fecha());
+            expPorUsuario.merge(c.idUsuario(), insercion.exp(), Integer::sum);
+            eventos.add(EventoSalida.completacion(c.idUsuario(), c.idMision(), insercion.exp(),
+                                                  c.fecha().truncatedTo(ChronoUnit.MICROS)));
+            clasificacionService.registrarCompletacion(c.idUsuario(), insercion.exp(), c.fecha());
+        }
+        
+        bandejaSalida.guardar(eventos);
+        previas.putAll(porClave(creadas));
+        // En modo write-behind solo llega al acumulador si el lote se confirma
+        expPorUsuario.forEach((idUsuario, exp) -> {
+            if (expAcumulador.isHabilitado()) {
+                expAcumulador.sumar(idUsuario, exp);
+            } else {
+                usuarioRepository.sumarExp(idUsuario, exp);
+            }
+        });
+        
+        List<ResultadoSincronizacion> resultados = new ArrayList<>(completaciones.size());
+        for (int i = 0; i < completaciones.size(); i++) {
+            String clave = completaciones.get(i).clave();
+            MisionHecha misionHecha = estados[i] == Estado.CREADA || estados[i] == Estado.REPETIDA
+                ? previas.get(clave) : null;
+            resultados.add(new ResultadoSincronizacion(clave, estados[i],
+                misionHecha == null ? null : misionHecha.getIdKey()));
+            meterRegistry.counter("misiones.sincronizadas", "estado", estados[i].name()).increment();
+        }
+        meterRegistry.counter("misiones.completadas").increment(creadas.size());
+        return resultados;
+    }
+    
+    /**
+     * Inserta las completaciones en una sentencia, como insertarCompletacion: solo las de
+     * usuarios y misiones que existen, sin error si se han borrado, y con la experiencia que
+     * tiene la misión en la base de datos
+     * @return Resultado de cada completación, en el mismo orden
+     */
+    private Insercion[] insertar(List<CompletacionOffline> lote) {
+        Insercion[] resultado = new Insercion[lote.size()];
+        if (lote.isEmpty()) {
+            return resultado;
+        }
+        jdbcTemplate.query(
+            "WITH datos AS (" +
+            "  SELECT * FROM unnest(CAST(? AS bigint[]), CAST(? AS bigint[]), CAST(? AS timestamp[])," +
+            "                       CAST(? AS text[]), CAST(? AS text[]))" +
+            "  WITH ORDINALITY AS d(id_usuario, id_mision, fecha, foto_mision, clave, orden)), " +
+            "nueva AS (" +
+            "  INSERT INTO misiones_hechas (id_key, id_usuario, id_mision, fecha, foto_mision, clave_idempotencia)" +
+            "  SELECT nextval('misiones_hechas_id_key_seq'), u.id_usuario, m.id_mision, d.fecha, d.foto_mision, d.clave" +
+            "  FROM datos d JOIN usuario u ON u.id_usuario = d.id_usuario JOIN misiones m ON m.id_mision = d.id_mision" +
+            "  ORDER BY d.orden" +
+            "  ON CONFLICT DO NOTHING" +
+            "  RETURNING clave_idempotencia) " +
+            "SELECT d.orden, n.clave_idempotencia IS NOT NULL AS creada, " +
+            "m.id_mision IS NOT NULL AND EXISTS (SELECT 1 FROM usuario u WHERE u.id_usuario = d.id_usuario) AS existe, " +
+            "COALESCE(m.experencia_mision, 0) AS exp " +
+            "FROM datos d LEFT JOIN nueva n ON n.clave_idempotencia = d.clave " +
+            "LEFT JOIN misiones m ON m.id_mision = d.id_mision",
+            fila -> {
+                resultado[fila.getInt("orden") - 1] =
+                    new Insercion(fila.getBoolean("creada"), fila.getBoolean("existe"), fila.getInt("exp"));
+            },
+            lote.stream().map(CompletacionOffline::idUsuario).toArray(Long[]::new),
+            lote.stream().map(CompletacionOffline::idMision).toArray(Long[]::new),
+            lote.stream().map(c -> c.fecha().truncatedTo(ChronoUnit.MICROS).toString()).toArray(String[]::new),
+            lote.stream().map(CompletacionOffline::fotoMision).toArray(String[]::new),
+            lote.stream().map(CompletacionOffline::clave).toArray(String[]::new));
+        return resultado;
+    }
+    
+    private record Insercion(boolean creada, boolean existe, int exp) {}
+    
+    private boolean esValida(CompletacionOffline c, Set<Long> usuarios, LocalDateTime limite) {
+        return c.clave() != null && !c.clave().isBlank() && c.clave().length() <= 100
+            && c.idUsuario() != null && usuarios.contains(c.idUsuario())
+            && c.idMision() != null && catalogoMisiones.getMision(c.idMision()).isPresent()
+            && c.fecha() != null && !c.fecha().isAfter(limite)
+            && (c.fotoMision() == null || fotoService.esReferencia(c.fotoMision()));
+    }
+    
+    private Map<String, MisionHecha> porClave(Collection<String> claves) {
+        if (claves.isEmpty()) {
+            return new HashMap<>();
+        }
+        return misionHechaRepository.findByClaveIdempotenciaIn(claves).stream()
+            .collect(Collectors.toMap(MisionHecha::getClaveIdempotencia, m -> m, (a, b) -> a, HashMap::new));
+    }
+    
     public List<Mision> getMisionesCompletadasByUsuario(Long idUsuario) {
-    List<MisionHecha> misionesHechas = misionHechaRepository.findByIdUsuario(idUsuario);
-    return misionesHechas.stream()
-            .map(MisionHecha::getIdMision)
-            .map(misionRepository::findById)
-            .filter(Optional::isPresent)
-            .map(Optional::get)
-            .collect(Collectors.toList());
+        return misionHechaRepository.findHistorialByIdUsuario(idUsuario).stream()
+                .map(completada -> {
+                    Mision mision = new Mision(completada.tituloMision(), completada.textoMision(),
+                                               completada.experenciaMision());
+                    mision.setIdMision(completada.idMision());
+                    return mision;
+                })
+                .collect(Collectors.toList());
+    }
+    
+    public List<MisionCompletadaDTO> getHistorialByUsuario(Long idUsuario) {
+        return misionHechaRepository.findHistorialByIdUsuario(idUsuario);
+    }
+    
+    /**
+     * Misiones hechas y experiencia ganada por periodo, agrupadas en la base de datos con
+     * date_trunc sobre idx_misiones_hechas_usuario_fecha. Solo aparecen los periodos con actividad.
+     * Los días, semanas y meses son los de misiones.diarias.zona-horaria, como en las rachas
+     * y las clasificaciones.
+     * @param desde Primer día incluido
+     * @param hasta Último día incluido
+     */
+    public List<ActividadPeriodo> getCalendario(Long idUsuario, LocalDate desde, LocalDate hasta,
+                                                PeriodoActividad periodo) {
+        return jdbcTemplate.query(
+            // fecha está en la zona del servidor, que el driver fija como TimeZone de la sesión
+            "SELECT CAST(date_trunc(?, CAST(mh.fecha AS timestamptz) AT TIME ZONE ?) AS date) AS inicio, " +
+            "COUNT(*) AS completadas, " +
+            "COALESCE(SUM(m.experencia_mision), 0) AS exp " +
+            "FROM misiones_hechas mh JOIN misiones m ON m.id_mision = mh.id_mision " +
+            "WHERE mh.id_usuario = ? AND mh.fecha >= ? AND mh.fecha < ? " +
+            "GROUP BY 1 ORDER BY 1",
+            (rs, fila) -> new ActividadPeriodo(rs.getObject("inicio", LocalDate.class),
+                                               rs.getLong("completadas"), rs.getLong("exp")),
+            periodo.getUnidad(), zonaHoraria.getId(), idUsuario, inicioDe(desde), inicioDe(hasta.plusDays(1)));
     }
     
+    // Inicio del día en la zona de las misiones, como fecha en la zona del servidor
+    private LocalDateTime inicioDe(LocalDate dia) {
+        return dia.atStartOfDay(zonaHoraria).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+    
+    public ResumenActividad getResumen(Long idUsuario) {
+        return misionHechaRepository.findResumenByIdUsuario(idUsuario);
+    }
+    
+    /**
+     * Versión de las misiones hechas del usuario, para responder 304 sin cargarlas
+     */
+    public VersionHistorial getVersionHistorial(Long idUsuario) {
+        return misionHechaRepository.findVersionHistorial(idUsuario);
+    }
+    
+    @Transactional
     public boolean deleteMisionHecha(Long id) {
-        if (misionHechaRepository.existsById(id)) {
-            misionHechaRepository.deleteById(id);
+        return misionHechaRepository.findById(id).map(misionHecha -> {
+            misionHechaRepository.delete(misionHecha);
+            bandejaSalida.descartar(misionHecha.getIdUsuario(), misionHecha.getIdMision());
+            misionesCompletadas.desmarcar(misionHecha.getIdUsuario(), misionHecha.getIdMision());
+            rachaService.eliminarCompletacion(misionHecha.getIdUsuario(), misionHecha.getFecha());
+            clasificacionService.retirarCompletacion(
+                misionHecha.getIdUsuario(), misionHecha.getIdMision(), misionHecha.getFecha());
             return true;
-        }
-        return false;
+        }).orElse(false);
     }
 }
\ No newline at end of file
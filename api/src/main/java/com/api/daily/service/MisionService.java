@@ -2,6 +2,7 @@ package com.api.daily.service;
 
 import com.api.daily.model.Mision;
 import com.api.daily.repository.MisionRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.util.List;
@@ -10,26 +11,40 @@ import java.util.Optional;
 @Service
 public class MisionService {
     
+    private static final String CANAL_CATALOGO = "catalogo_misiones";
+    
     @Autowired
     private MisionRepository misionRepository;
     
-    public List<Mision> getAllMisiones() {
-        return misionRepository.findAll();
+    @Autowired
+    private CatalogoMisiones catalogoMisiones;
+    
+    @Autowired
+    private MisionDiariaService misionDiariaService;
+    
+    @Autowired
+    private BusquedaMisionService busquedaMisionService;
+    
+    @Autowired
+    private AvisosEntreNodos avisosEntreNodos;
+    
+    @PostConstruct
+    void escucharCambios() {
+        avisosEntreNodos.escuchar(CANAL_CATALOGO, idMision -> invalidarCaches(Long.valueOf(idMision)));
     }
     
-    public Optional<Mision> getMisionById(Long id) {
-        return misionRepository.findById(id);
+    public List<Mision> getAllMisiones() {
+        return catalogoMisiones.getMisiones();
     }
     
-    public List<Mision> searchMisionesByTitulo(String titulo) {
-        if (titulo == null || titulo.trim().isEmpty()) {
-            return getAllMisiones();
-        }
-        return misionRepository.findByTituloMisionContainingIgnoreCase(titulo);
+    public Optional<Mision> getMisionById(Long id) {
+        return catalogoMisiones.getMision(id);
     }
     
     public Mision createMision(Mision mision) {
-        return misionRepository.save(mision);
+        Mision nuevaMision = misionRepository.save(mision);
+        invalidar(nuevaMision.getIdMision());
+        return nuevaMision;
     }
     
     public Optional<Mision> updateMision(Long id, Mision misionDetails) {
@@ -43,15 +58,35 @@ public class MisionService {
             if (misionDetails.getExperenciaMision() != null) {
                 mision.setExperenciaMision(misionDetails.getExperenciaMision());
             }
-            return misionRepository.save(mision);
+            if (misionDetails.getPeso() != null) {
+                mision.setPeso(misionDetails.getPeso());
+            }
+            Mision misionActualizada = misionRepository.save(mision);
+            invalidar(id);
+            return misionActualizada;
         });
     }
     
     public boolean deleteMision(Long id) {
         if (misionRepository.existsById(id)) {
             misionRepository.deleteById(id);
+            invalidar(id);
             return true;
         }
         return false;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Descarta las cachés del catálogo en este nodo y avisa a los demás
+     */
+    private void invalidar(Long idMision) {
+        invalidarCaches(idMision);
+        avisosEntreNodos.enviar(CANAL_CATALOGO, List.of(idMision.toString()));
+    }
+    
+    private void invalidarCaches(Long idMision) {
+        catalogoMisiones.invalidar(idMision);
+        misionDiariaService.invalidarCache();
+        busquedaMisionService.invalidar();
+    }
+}
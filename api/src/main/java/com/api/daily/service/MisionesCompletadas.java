@@ -0,0 +1,172 @@
+package com.api.daily.service;
+
+import com.api.daily.dto.CompletacionUsuario;
+import com.api.daily.repository.MisionHechaRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.BitSet;
+
+/**
+ * Misiones completadas por cada usuario como mapa de bits indexado por id de misión.
+ * Se cargan con una consulta por usuario en una caché de tamaño acotado. Los mapas no
+ * se modifican: cada cambio publica una copia, así que se leen sin cerrojos.
+ * Un bit marcado es fiable porque solo se marca tras confirmar la inserción; si falta,
+ * la inserción con ON CONFLICT sigue siendo la comprobación definitiva. Los borrados
+ * hechos en otro nodo se ven al caducar la entrada (misiones.completadas.cache.segundos).
+ */
+@Service
+public class MisionesCompletadas {
+    
+    @Autowired
+    private MisionHechaRepository misionHechaRepository;
+    
+    @Value("${misiones.diarias.zona-horaria:Europe/Madrid}")
+    private ZoneId zonaHoraria;
+    
+    private final Cache<Long, Completadas> porUsuario;
+    
+    public MisionesCompletadas(@Value("${misiones.completadas.cache.maximo:100000}") long maximo,
+                               @Value("${misiones.completadas.cache.segundos:600}") long segundos,
+                               MeterRegistry meterRegistry) {
+        this.porUsuario = Caffeine.newBuilder()
+            .maximumSize(maximo)
+            .expireAfterWrite(Duration.ofSeconds(segundos))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, porUsuario, "misiones.completadas.usuario");
+    }
+    
+    /**
+     * Comprueba en memoria, sin consultar la base de datos, si el usuario ya completó la misión
+     * @return true solo si el usuario está cacheado y la tiene completada
+     */
+    public boolean estaCompletada(Long idUsuario, Long idMision) {
+        Completadas completadas = porUsuario.getIfPresent(idUsuario);
+        return completadas != null && completadas.contiene(idMision);
+    }
+    
+    /**
+     * Misiones completadas por el usuario; si no está cacheado se cargan con una consulta
+     */
+    public Completadas getCompletadas(Long idUsuario) {
+        LocalDate hoy = LocalDate.now(zonaHoraria);
+        Completadas completadas = porUsuario.get(idUsuario, id -> cargar(id, hoy));
+        if (completadas.dia.equals(hoy)) {
+            return completadas;
+        }
+        // Cambio de día: lo completado ayer pasa a anteriores sin volver a consultar
+        return porUsuario.asMap().compute(idUsuario,
+            (id, actual) -> actual == null ? cargar(id, hoy) : actual.alDia(hoy));
+    }
+    
+    /**
+     * Marca la misión como completada al confirmarse la transacción en curso. Si el
+     * usuario no está cacheado no hace nada: la próxima carga ya la incluye.
+     */
+    public void marcar(Long idUsuario, Long idMision, LocalDateTime fecha) {
+        Transacciones.despuesDeConfirmar(() -> porUsuario.asMap().computeIfPresent(idUsuario,
+            (id, actual) -> actual.con(idMision, diaDe(fecha))));
+    }
+    
+    /**
+     * Quita la misión de las completadas del usuario al confirmarse la transacción en curso
+     */
+    public void desmarcar(Long idUsuario, Long idMision) {
+        Transacciones.despuesDeConfirmar(() -> porUsuario.asMap().computeIfPresent(idUsuario,
+            (id, actual) -> actual.sin(idMision)));
+    }
+    
+    private Completadas cargar(Long idUsuario, LocalDate hoy) {
+        BitSet anteriores = new BitSet();
+        BitSet deHoy = new BitSet();
+        for (CompletacionUsuario completacion : misionHechaRepository.findCompletacionesByIdUsuario(idUsuario)) {
+            int indice = indice(completacion.idMision());
+            if (indice >= 0) {
+                (diaDe(completacion.fecha()).isBefore(hoy) ? anteriores : deHoy).set(indice);
+            }
+        }
+        return new Completadas(hoy, anteriores, deHoy);
+    }
+    
+    // Las fechas se guardan en la zona del servidor; el día se cuenta en la de las misiones diarias
+    private LocalDate diaDe(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).withZoneSameInstant(zonaHoraria).toLocalDate();
+    }
+    
+    // Los ids que no caben en un int no se guardan en el mapa
+    private static int indice(Long idMision) {
+        return idMision != null && idMision >= 0 && idMision <= Integer.MAX_VALUE ? idMision.intValue() : -1;
+    }
+    
+    /**
+     * Misiones completadas por un usuario, separando las de hoy para que las misiones
+     * diarias personalizadas no cambien al completarlas
+     */
+    public static final class Completadas {
+        private final LocalDate dia;
+        private final BitSet anteriores;
+        private final BitSet deHoy;
+        
+        private Completadas(LocalDate dia, BitSet anteriores, BitSet deHoy) {
+            this.dia = dia;
+            this.anteriores = anteriores;
+            this.deHoy = deHoy;
+        }
+        
+        public boolean contiene(Long idMision) {
+            int indice = indice(idMision);
+            return indice >= 0 && (anteriores.get(indice) || deHoy.get(indice));
+        }
+        
+        /**
+         * Completada algún día anterior a hoy
+         */
+        public boolean antesDeHoy(Long idMision) {
+            int indice = indice(idMision);
+            return indice >= 0 && anteriores.get(indice);
+        }
+        
+        private Completadas alDia(LocalDate hoy) {
+            if (!hoy.isAfter(dia)) {
+                return this;
+            }
+            BitSet todas = (BitSet) anteriores.clone();
+            todas.or(deHoy);
+            return new Completadas(hoy, todas, new BitSet());
+        }
+        
+        private Completadas con(Long idMision, LocalDate fecha) {
+            int indice = indice(idMision);
+            if (indice < 0 || contiene(idMision)) {
+                return this;
+            }
+            Completadas actual = alDia(fecha);
+            BitSet anteriores = (BitSet) actual.anteriores.clone();
+            BitSet deHoy = (BitSet) actual.deHoy.clone();
+            (fecha.isBefore(actual.dia) ? anteriores : deHoy).set(indice);
+            return new Completadas(actual.dia, anteriores, deHoy);
+        }
+        
+        private Completadas sin(Long idMision) {
+            int indice = indice(idMision);
+            if (indice < 0 || !contiene(idMision)) {
+                return this;
+            }
+            BitSet anteriores = (BitSet) this.anteriores.clone();
+            BitSet deHoy = (BitSet) this.deHoy.clone();
+            anteriores.clear(indice);
+            deHoy.clear(indice);
+            return new Completadas(dia, anteriores, deHoy);
+        }
+    }
+}
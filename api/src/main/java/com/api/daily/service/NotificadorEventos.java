@@ -0,0 +1,112 @@
+package com.api.daily.service;
+
+import com.api.daily.dto.EventoCompletacion;
+import com.api.daily.dto.EventoMisionesDiarias;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Eventos de la aplicación que se empujan a los clientes conectados por SSE,
+ * para que no tengan que consultar periódicamente:
+ * misiones-diarias al conectar y al empezar el día (las del usuario si la conexión es de
+ * un usuario), y completacion a cada usuario cuando completa misiones, con su experiencia,
+ * nivel y racha actualizados. Las completaciones se difunden a todos los nodos y cada
+ * uno avisa a las conexiones que tiene abiertas.
+ */
+@Service
+public class NotificadorEventos {
+    
+    static final String MISIONES_DIARIAS = "misiones-diarias";
+    static final String COMPLETACION = "completacion";
+    
+    private static final String CANAL_COMPLETACIONES = "completaciones";
+    
+    @Autowired
+    private CentralEventos centralEventos;
+    
+    @Autowired
+    private MisionDiariaService misionDiariaService;
+    
+    @Autowired
+    private UsuarioService usuarioService;
+    
+    @Autowired
+    private RachaService rachaService;
+    
+    @Autowired
+    private AvisosEntreNodos avisosEntreNodos;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @PostConstruct
+    void escucharCompletaciones() {
+        avisosEntreNodos.escuchar(CANAL_COMPLETACIONES, this::recibirCompletacion);
+    }
+    
+    /**
+     * Abre una conexión de eventos que empieza con las misiones diarias de hoy
+     * @param idUsuario Usuario que recibe sus misiones diarias y sus completaciones, o null
+     */
+    public SseEmitter suscribir(Long idUsuario) {
+        return centralEventos.suscribir(idUsuario, centralEventos.evento(MISIONES_DIARIAS, misionesDiarias(idUsuario)));
+    }
+    
+    @Scheduled(cron = "0 0 0 * * *", zone = "${misiones.diarias.zona-horaria:Europe/Madrid}")
+    public void publicarMisionesDiarias() {
+        centralEventos.publicar(MISIONES_DIARIAS, misionesDiarias(null), this::misionesDiarias);
+    }
+    
+    /**
+     * Difunde a todos los nodos las misiones completadas de cada usuario, para que avise
+     * el nodo que tenga sus conexiones abiertas
+     */
+    public void completaciones(List<AvisoCompletacion> avisos) {
+        avisosEntreNodos.enviar(CANAL_COMPLETACIONES, avisos.stream().map(this::aJson).toList());
+    }
+    
+    // El perfil y la racha solo se leen si el usuario tiene alguna conexión abierta en este nodo
+    private void recibirCompletacion(String carga) {
+        AvisoCompletacion aviso;
+        try {
+            aviso = objectMapper.readValue(carga, AvisoCompletacion.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        Long idUsuario = aviso.idUsuario();
+        if (!centralEventos.tieneSuscripciones(idUsuario)) {
+            return;
+        }
+        centralEventos.publicar(idUsuario, COMPLETACION, () ->
+            new EventoCompletacion(aviso.misiones(), aviso.exp(),
+                                   usuarioService.getUsuarioById(idUsuario).map(usuarioService::perfil).orElse(null),
+                                   rachaService.getRacha(idUsuario).orElse(null)));
+    }
+    
+    private String aJson(AvisoCompletacion aviso) {
+        try {
+            return objectMapper.writeValueAsString(aviso);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    // Las del usuario, o las comunes si es null
+    private EventoMisionesDiarias misionesDiarias(Long idUsuario) {
+        return new EventoMisionesDiarias(misionDiariaService.getHoy(), idUsuario != null
+            ? misionDiariaService.getMisionesDiarias(idUsuario) : misionDiariaService.getMisionesDiarias());
+    }
+    
+    /**
+     * Misiones completadas por un usuario y experiencia ganada con ellas
+     */
+    public record AvisoCompletacion(Long idUsuario, List<Long> misiones, int exp) {}
+}
@@ -0,0 +1,40 @@
+package com.api.daily.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Crea por adelantado las particiones mensuales de misiones_hechas, para que las
+ * completaciones nuevas no caigan en la partición por defecto.
+ * Se activa con misiones-hechas.particionado=true.
+ */
+@Component
+@ConditionalOnProperty(name = "misiones-hechas.particionado", havingValue = "true")
+public class ParticionesMisionesHechas {
+    
+    private static final Logger log = LoggerFactory.getLogger(ParticionesMisionesHechas.class);
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${misiones-hechas.particiones.meses-adelante:3}")
+    private int mesesAdelante;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${misiones-hechas.particiones.cron:0 0 3 * * *}")
+    public void crearParticiones() {
+        Integer creadas = jdbcTemplate.queryForObject(
+            "SELECT crear_particiones_misiones_hechas(?)", Integer.class, mesesAdelante);
+        if (creadas != null && creadas > 0) {
+            log.info("Creadas {} particiones de misiones_hechas", creadas);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.api.daily.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToIntFunction;
+
+/**
+ * Planifica las misiones diarias con días de antelación en la tabla misiones_diarias.
+ * El sorteo pondera cada misión por su peso y no repite una misión hasta pasados
+ * misiones.diarias.sin-repetir-dias. Se planifica una semana en cada lote y un cerrojo
+ * consultivo de PostgreSQL evita que dos nodos planifiquen los mismos días.
+ */
+@Component
+public class PlanificadorMisionesDiarias {
+    
+    private static final Logger log = LoggerFactory.getLogger(PlanificadorMisionesDiarias.class);
+    private static final int DIAS_POR_LOTE = 7;
+    private static final String CERROJO = "SELECT pg_advisory_xact_lock(hashtext('misiones_diarias'))";
+    
+    private record Candidata(long idMision, int peso) {}
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${misiones.diarias.zona-horaria:Europe/Madrid}")
+    private ZoneId zonaHoraria;
+    
+    @Value("${misiones.diarias.cantidad:3}")
+    private int cantidad;
+    
+    @Value("${misiones.diarias.dias-adelante:14}")
+    private int diasAdelante;
+    
+    @Value("${misiones.diarias.sin-repetir-dias:7}")
+    private int sinRepetirDias;
+    
+    /**
+     * Ids de las misiones planificadas para una fecha, en orden
+     */
+    public List<Long> getMisiones(LocalDate fecha) {
+        return jdbcTemplate.queryForList(
+            "SELECT id_mision FROM misiones_diarias WHERE fecha = ? ORDER BY posicion", Long.class, fecha);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${misiones.diarias.planificar-cron:0 0 1 * * *}",
+               zone = "${misiones.diarias.zona-horaria:Europe/Madrid}")
+    public void planificar() {
+        planificar(LocalDate.now(zonaHoraria));
+    }
+    
+    /**
+     * Completa la planificación hasta misiones.diarias.dias-adelante después de hoy
+     * @return Días planificados
+     */
+    public int planificar(LocalDate hoy) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        Integer dias = transaccion.execute(estado -> {
+            jdbcTemplate.execute(CERROJO);
+            LocalDate ultima = jdbcTemplate.queryForObject("SELECT max(fecha) FROM misiones_diarias", LocalDate.class);
+            LocalDate desde = ultima == null || ultima.isBefore(hoy) ? hoy : ultima.plusDays(1);
+            LocalDate hasta = hoy.plusDays(diasAdelante);
+            if (desde.isAfter(hasta)) {
+                return 0;
+            }
+    
+            List<Candidata> candidatas = jdbcTemplate.query(
+                "SELECT id_mision, peso FROM misiones WHERE peso > 0 ORDER BY id_mision",
+                (rs, fila) -> new Candidata(rs.getLong(1), rs.getInt(2)));
+            if (candidatas.isEmpty()) {
+                return 0;
+            }
+            Map<Long, LocalDate> ultimoUso = new HashMap<>();
+            jdbcTemplate.query(
+                "SELECT id_mision, max(fecha) FROM misiones_diarias WHERE fecha >= ? GROUP BY id_mision",
+                rs -> {
+                    ultimoUso.put(rs.getLong(1), rs.getObject(2, LocalDate.class));
+                }, desde.minusDays(sinRepetirDias));
+    
+            Random random = ThreadLocalRandom.current();
+            int planificados = 0;
+            while (!desde.isAfter(hasta)) {
+                List<Object[]> filas = new ArrayList<>();
+                for (int i = 0; i < DIAS_POR_LOTE && !desde.isAfter(hasta); i++, desde = desde.plusDays(1)) {
+                    List<Long> elegidas = elegir(candidatas, ultimoUso, desde, random);
+                    for (int posicion = 0; posicion < elegidas.size(); posicion++) {
+                        filas.add(new Object[] {desde, posicion, elegidas.get(posicion)});
+                        ultimoUso.put(elegidas.get(posicion), desde);
+                    }
+                    planificados++;
+                }
+                jdbcTemplate.batchUpdate(
+                    "INSERT INTO misiones_diarias (fecha, posicion, id_mision) VALUES (?, ?, ?) " +
+                    "ON CONFLICT DO NOTHING", filas);
+            }
+            return planificados;
+        });
+        if (dias != null && dias > 0) {
+            log.info("Planificados {} días de misiones diarias", dias);
+        }
+        return dias == null ? 0 : dias;
+    }
+    
+    /**
+     * Sorteo ponderado sin reemplazo entre las misiones fuera de la ventana sin repetición.
+     * Si no llegan, se completa con las que hace más tiempo que salieron.
+     */
+    private List<Long> elegir(List<Candidata> candidatas, Map<Long, LocalDate> ultimoUso,
+                              LocalDate fecha, Random random) {
+        List<Candidata> disponibles = new ArrayList<>();
+        List<Candidata> recientes = new ArrayList<>();
+        for (Candidata candidata : candidatas) {
+            LocalDate uso = ultimoUso.get(candidata.idMision());
+            if (uso == null || uso.plusDays(sinRepetirDias).isBefore(fecha)) {
+                disponibles.add(candidata);
+            } else {
+                recientes.add(candidata);
+            }
+        }
+    
+        List<Long> elegidas = new ArrayList<>(cantidad);
+        while (elegidas.size() < cantidad && !disponibles.isEmpty()) {
+            elegidas.add(sortear(disponibles, Candidata::peso, random).idMision());
+        }
+    
+        recientes.sort((a, b) -> ultimoUso.get(a.idMision()).compareTo(ultimoUso.get(b.idMision())));
+        for (int i = 0; elegidas.size() < cantidad && i < recientes.size(); i++) {
+            elegidas.add(recientes.get(i).idMision());
+        }
+        return elegidas;
+    }
+    
+    /**
+     * Saca de la lista una candidata al azar con probabilidad proporcional a su peso
+     * @param candidatas Candidatas con peso mayor que 0; se quita la elegida
+     */
+    static <T> T sortear(List<T> candidatas, ToIntFunction<T> peso, Random random) {
+        long objetivo = random.nextLong(candidatas.stream().mapToLong(peso::applyAsInt).sum());
+        int indice = 0;
+        while (objetivo >= peso.applyAsInt(candidatas.get(indice))) {
+            objetivo -= peso.applyAsInt(candidatas.get(indice));
+            indice++;
+        }
+        return candidatas.remove(indice);
+    }
+}
@@ -0,0 +1,77 @@
+package com.api.daily.service;
+
+import com.api.daily.dto.ActividadUsuario;
+import com.api.daily.model.Racha;
+import com.api.daily.repository.MisionHechaRepository;
+import com.api.daily.repository.RachaRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Reconstruye la tabla de rachas a partir de misiones_hechas en una sola pasada.
+ * Se activa arrancando con rachas.backfill.habilitado=true.
+ */
+@Component
+@ConditionalOnProperty(name = "rachas.backfill.habilitado", havingValue = "true")
+public class RachaBackfill implements ApplicationRunner {
+    
+    private static final Logger log = LoggerFactory.getLogger(RachaBackfill.class);
+    private static final int TAMANO_LOTE = 500;
+    
+    @Autowired
+    private MisionHechaRepository misionHechaRepository;
+    
+    @Autowired
+    private RachaRepository rachaRepository;
+    
+    @Autowired
+    private RachaService rachaService;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        rachaRepository.deleteAllInBatch();
+        
+        int usuarios = 0;
+        Racha racha = null;
+        try (Stream<ActividadUsuario> actividad = misionHechaRepository.streamActividad()) {
+            Iterator<ActividadUsuario> it = actividad.iterator();
+            while (it.hasNext()) {
+                ActividadUsuario fila = it.next();
+                if (racha == null || !racha.getIdUsuario().equals(fila.idUsuario())) {
+                    if (racha != null) {
+                        guardar(racha, ++usuarios);
+                    }
+                    racha = new Racha(fila.idUsuario());
+                }
+                racha.registrarDia(rachaService.diaDe(fila.fecha()));
+            }
+        }
+        if (racha != null) {
+            guardar(racha, ++usuarios);
+        }
+        log.info("Rachas reconstruidas para {} usuarios", usuarios);
+    }
+    
+    private void guardar(Racha racha, int usuarios) {
+        entityManager.persist(racha);
+        if (usuarios % TAMANO_LOTE == 0) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.api.daily.service;
+
+import com.api.daily.dto.RachaDTO;
+import com.api.daily.model.MisionHecha;
+import com.api.daily.model.Racha;
+import com.api.daily.repository.MisionHechaRepository;
+import com.api.daily.repository.RachaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Rachas de días seguidos con alguna misión completada. Los días se cuentan en
+ * misiones.diarias.zona-horaria, como las misiones diarias y las clasificaciones.
+ */
+@Service
+public class RachaService {
+    
+    @Autowired
+    private RachaRepository rachaRepository;
+    
+    @Autowired
+    private MisionHechaRepository misionHechaRepository;
+    
+    @Value("${misiones.diarias.zona-horaria:Europe/Madrid}")
+    private ZoneId zonaHoraria;
+    
+    /**
+     * Obtiene la racha de un usuario tal y como la vería hoy
+     * @param idUsuario ID del usuario
+     * @return Racha del usuario, vacía si nunca ha completado una misión
+     */
+    public Optional<RachaDTO> getRacha(Long idUsuario) {
+        LocalDate hoy = LocalDate.now(zonaHoraria);
+        return rachaRepository.findById(idUsuario)
+                .map(racha -> new RachaDTO(idUsuario, racha.getRachaActual(hoy),
+                                           racha.getRachaMaxima(), racha.getUltimoDia()));
+    }
+    
+    /**
+     * Actualiza las rachas de varios usuarios en una sola transacción tras completar misiones.
+     * Las rachas se crean si faltan y se bloquean antes de leer las fechas de las misiones
+     * hechas, así una completación ya eliminada no cuenta y otra transacción sobre la misma
+     * racha espera. Registrar otra vez una fecha ya registrada no cambia la racha.
+     * @param misionesPorUsuario Misiones completadas por cada usuario
+     */
+    @Transactional
+    public void registrarCompletaciones(Map<Long, Set<Long>> misionesPorUsuario) {
+        if (misionesPorUsuario.isEmpty()) {
+            return;
+        }
+        rachaRepository.crearSiNoExisten(misionesPorUsuario.keySet());
+        Map<Long, Racha> rachas = rachaRepository.findParaActualizar(misionesPorUsuario.keySet()).stream()
+                .collect(Collectors.toMap(Racha::getIdUsuario, racha -> racha));
+        
+        Set<Long> misiones = misionesPorUsuario.values().stream()
+                .flatMap(Set::stream)
+                .collect(Collectors.toSet());
+        Map<Long, List<LocalDateTime>> fechasPorUsuario = new HashMap<>();
+        for (MisionHecha misionHecha : misionHechaRepository.findByIdUsuarioInAndIdMisionIn(
+                misionesPorUsuario.keySet(), misiones)) {
+            if (misionesPorUsuario.get(misionHecha.getIdUsuario()).contains(misionHecha.getIdMision())) {
+                fechasPorUsuario.computeIfAbsent(misionHecha.getIdUsuario(), u -> new ArrayList<>())
+                        .add(misionHecha.getFecha());
+            }
+        }
+        fechasPorUsuario.forEach((idUsuario, fechas) -> {
+            Racha racha = rachas.get(idUsuario);
+            if (racha != null) {
+                registrar(racha, fechas);
+            }
+        });
+    }
+    
+    /**
+     * Actualiza la racha tras eliminar una misión completada en la fecha indicada.
+     * Solo recalcula si ese día se ha quedado sin actividad.
+     */
+    @Transactional
+    public void eliminarCompletacion(Long idUsuario, LocalDateTime fecha) {
+        LocalDate dia = diaDe(fecha);
+        rachaRepository.findParaActualizar(List.of(idUsuario)).forEach(racha -> {
+            if (!misionHechaRepository.existsByIdUsuarioAndFechaBetween(
+                    idUsuario, inicioDe(dia), inicioDe(dia.plusDays(1)).minusNanos(1))) {
+                recalcular(racha);
+            }
+        });
+    }
+    
+    // Recalcula una sola vez si alguna fecha es anterior al último día registrado
+    private void registrar(Racha racha, List<LocalDateTime> fechas) {
+        boolean enOrden = fechas.stream()
+                .map(this::diaDe)
+                .sorted()
+                .allMatch(racha::registrarDia);
+        if (!enOrden) {
+            recalcular(racha);
+        }
+    }
+    
+    private void recalcular(Racha racha) {
+        racha.reiniciar();
+        for (LocalDateTime fecha : misionHechaRepository.findFechasByIdUsuario(racha.getIdUsuario())) {
+            racha.registrarDia(diaDe(fecha));
+        }
+    }
+    
+    // Las fechas se guardan en la zona del servidor; el día se cuenta en la de las misiones diarias
+    LocalDate diaDe(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).withZoneSameInstant(zonaHoraria).toLocalDate();
+    }
+    
+    // Inicio del día en la zona de las misiones, como fecha en la zona del servidor
+    private LocalDateTime inicioDe(LocalDate dia) {
+        return dia.atStartOfDay(zonaHoraria).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+    }
+}
@@ -0,0 +1,158 @@
+package com.api.daily.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Índice ordenado de puntuaciones (treap con tamaño de subárbol). Ordena por puntos
+ * descendente y, a igualdad, por id de usuario; posición y actualización son O(log n).
+ */
+class RankingIndice {
+    
+    private static final class Nodo {
+        final long id;
+        final long puntos;
+        final int prioridad = ThreadLocalRandom.current().nextInt();
+        int tamano = 1;
+        Nodo izq;
+        Nodo der;
+        
+        Nodo(long id, long puntos) {
+            this.id = id;
+            this.puntos = puntos;
+        }
+    }
+    
+    /**
+     * Entrada del ranking: posición empezando en 1
+     */
+    record Entrada(int posicion, long idUsuario, long puntos) {}
+    
+    private final Map<Long, Long> puntos = new HashMap<>();
+    private Nodo raiz;
+    
+    synchronized void sumar(long idUsuario, long delta) {
+        fijar(idUsuario, puntos.getOrDefault(idUsuario, 0L) + delta);
+    }
+    
+    synchronized void fijar(long idUsuario, long valor) {
+        eliminar(idUsuario);
+        puntos.put(idUsuario, valor);
+        Nodo[] partes = dividir(raiz, valor, idUsuario);
+        raiz = unir(unir(partes[0], new Nodo(idUsuario, valor)), partes[1]);
+    }
+    
+    synchronized void eliminar(long idUsuario) {
+        Long anterior = puntos.remove(idUsuario);
+        if (anterior != null) {
+            Nodo[] partes = dividir(raiz, anterior, idUsuario);
+            raiz = unir(partes[0], quitarPrimero(partes[1]));
+        }
+    }
+    
+    /**
+     * @return Posición del usuario empezando en 1, o null si no está en el ranking
+     */
+    synchronized Entrada getEntrada(long idUsuario) {
+        Long valor = puntos.get(idUsuario);
+        if (valor == null) {
+            return null;
+        }
+        int antes = 0;
+        Nodo nodo = raiz;
+        while (nodo != null) {
+            if (antes(valor, idUsuario, nodo.puntos, nodo.id)) {
+                nodo = nodo.izq;
+            } else if (nodo.id == idUsuario) {
+                return new Entrada(antes + tamano(nodo.izq) + 1, idUsuario, valor);
+            } else {
+                antes += tamano(nodo.izq) + 1;
+                nodo = nodo.der;
+            }
+        }
+        return null;
+    }
+    
+    synchronized List<Entrada> getTop(int n) {
+        List<Entrada> top = new ArrayList<>(Math.min(n, tamano(raiz)));
+        recorrer(raiz, top, n);
+        return top;
+    }
+    
+    synchronized int getTamano() {
+        return tamano(raiz);
+    }
+    
+    private void recorrer(Nodo nodo, List<Entrada> top, int n) {
+        if (nodo == null || top.size() >= n) {
+            return;
+        }
+        recorrer(nodo.izq, top, n);
+        if (top.size() < n) {
+            top.add(new Entrada(top.size() + 1, nodo.id, nodo.puntos));
+            recorrer(nodo.der, top, n);
+        }
+    }
+    
+    // Separa en [claves anteriores a (puntos, id)] y [resto]
+    private static Nodo[] dividir(Nodo nodo, long puntos, long id) {
+        if (nodo == null) {
+            return new Nodo[] {null, null};
+        }
+        if (antes(nodo.puntos, nodo.id, puntos, id)) {
+            Nodo[] partes = dividir(nodo.der, puntos, id);
+            nodo.der = partes[0];
+            actualizar(nodo);
+            return new Nodo[] {nodo, partes[1]};
+        }
+        Nodo[] partes = dividir(nodo.izq, puntos, id);
+        nodo.izq = partes[1];
+        actualizar(nodo);
+        return new Nodo[] {partes[0], nodo};
+    }
+    
+    // true si (puntosA, idA) va antes que (puntosB, idB) en el ranking
+    private static boolean antes(long puntosA, long idA, long puntosB, long idB) {
+        return puntosA > puntosB || (puntosA == puntosB && idA < idB);
+    }
+    
+    private static Nodo unir(Nodo a, Nodo b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.prioridad > b.prioridad) {
+            a.der = unir(a.der, b);
+            actualizar(a);
+            return a;
+        }
+        b.izq = unir(a, b.izq);
+        actualizar(b);
+        return b;
+    }
+    
+    private static Nodo quitarPrimero(Nodo nodo) {
+        if (nodo == null) {
+            return null;
+        }
+        if (nodo.izq == null) {
+            return nodo.der;
+        }
+        nodo.izq = quitarPrimero(nodo.izq);
+        actualizar(nodo);
+        return nodo;
+    }
+    
+    private static int tamano(Nodo nodo) {
+        return nodo == null ? 0 : nodo.tamano;
+    }
+    
+    private static void actualizar(Nodo nodo) {
+        nodo.tamano = 1 + tamano(nodo.izq) + tamano(nodo.der);
+    }
+}
@@ -0,0 +1,28 @@
+package com.api.daily.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utilidades para actualizar estado en memoria solo cuando la transacción se confirma
+ */
+final class Transacciones {
+    
+    private Transacciones() {}
+    
+    /**
+     * Ejecuta la acción al confirmarse la transacción en curso, o ya si no hay ninguna
+     */
+    static void despuesDeConfirmar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+}
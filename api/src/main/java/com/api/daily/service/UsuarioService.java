@@ -1,11 +1,22 @@
 package com.api.daily.service;
 
+import com.api.daily.dto.Cursor;
+import com.api.daily.dto.NombreUsuario;
+import com.api.daily.dto.PaginaDTO;
+import com.api.daily.dto.UsuarioDTO;
 import com.api.daily.model.Usuario;
 import com.api.daily.repository.UsuarioRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class UsuarioService {
@@ -13,56 +24,148 @@ public class UsuarioService {
     @Autowired
     private UsuarioRepository usuarioRepository;
     
-    public List<Usuario> getAllUsuarios() {
-        return usuarioRepository.findAll();
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private ExpAcumulador expAcumulador;
+    
+    @Autowired
+    private ClasificacionService clasificacionService;
+    
+    @Autowired
+    private CurvaNiveles curvaNiveles;
+    
+    @Autowired
+    private AutenticacionService autenticacionService;
+    
+    public PaginaDTO<UsuarioDTO> getUsuarios(String cursor, int limit) {
+        long desde = cursor == null ? 0L : Long.parseLong(Cursor.decodificar(cursor, 1)[0]);
+        List<Usuario> filas = usuarioRepository.findByIdUsuarioGreaterThanOrderByIdUsuarioAsc(
+            desde, Limit.of(limit + 1));
+        return PaginaDTO.de(filas, limit, ultimo -> Cursor.codificar(ultimo.getIdUsuario())).map(this::perfil);
+    }
+    
+    /**
+     * Recorre todos los usuarios sin acumularlos en memoria
+     * @param consumidor Recibe el perfil de cada usuario; la entidad se desvincula después
+     */
+    @Transactional(readOnly = true)
+    public void exportarUsuarios(Consumer<UsuarioDTO> consumidor) {
+        try (Stream<Usuario> usuarios = usuarioRepository.streamAll()) {
+            usuarios.forEach(usuario -> {
+                consumidor.accept(perfil(usuario));
+                entityManager.detach(usuario);
+            });
+        }
+    }
+    
+    /**
+     * Perfil público del usuario con su nivel según la curva de niveles
+     */
+    public UsuarioDTO perfil(Usuario usuario) {
+        CurvaNiveles.Nivel nivel = curvaNiveles.calcular(usuario.getExp());
+        return new UsuarioDTO(usuario.getIdUsuario(), usuario.getName(),
+                              usuario.getExp() == null ? 0 : usuario.getExp(), usuario.getFoto(),
+                              nivel.nivel(), nivel.progreso(), nivel.expSiguienteNivel());
+    }
+    
+    /**
+     * Usuario con ese nombre y contraseña, vacío si no existe o la contraseña no coincide
+     */
+    public Optional<Usuario> autenticar(String name, String passwd) {
+        return autenticacionService.autenticar(name, passwd).flatMap(this::getUsuarioById);
     }
     
     public Optional<Usuario> getUsuarioById(Long id) {
-        return usuarioRepository.findById(id);
+        return usuarioRepository.findById(id).map(this::conExpPendiente);
     }
     
+    /**
+     * Usuario por nombre, sin distinguir mayúsculas
+     */
     public Optional<Usuario> getUsuarioByName(String name) {
-        return usuarioRepository.findByName(name);
+        Optional<Long> idUsuario = autenticacionService.getIdUsuario(name);
+        if (idUsuario.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<Usuario> usuario = getUsuarioById(idUsuario.get());
+        if (usuario.isPresent() && AutenticacionService.mismoNombre(usuario.get().getName(), name)) {
+            return usuario;
+        }
+        // Id cacheado antes de renombrar o borrar el usuario en otro nodo
+        autenticacionService.invalidar(name);
+        return autenticacionService.getIdUsuario(name).flatMap(this::getUsuarioById);
     }
     
+    /**
+     * Registra al usuario con una sola inserción; si el nombre ya existe el índice
+     * único la rechaza con DataIntegrityViolationException
+     */
     public Usuario createUsuario(Usuario usuario) {
-        return usuarioRepository.save(usuario);
+        usuario.setName(usuario.getName().trim());
+        usuario.setPasswd(autenticacionService.cifrar(usuario.getPasswd()));
+        Usuario nuevoUsuario = usuarioRepository.save(usuario);
+        autenticacionService.invalidar(nuevoUsuario.getName());
+        clasificacionService.fijarExpTotal(nuevoUsuario.getIdUsuario(), nuevoUsuario.getExp());
+        return nuevoUsuario;
     }
     
+    /**
+     * Cambia solo los campos indicados con una actualización directa, para no escribir
+     * una experiencia leída antes de otra suma
+     * @throws org.springframework.dao.DataIntegrityViolationException Si el nombre nuevo ya existe
+     */
+    @Transactional
     public Optional<Usuario> updateUsuario(Long id, Usuario usuarioDetails) {
-        return usuarioRepository.findById(id).map(usuario -> {
-            if (usuarioDetails.getName() != null) {
-                usuario.setName(usuarioDetails.getName());
-            }
-            if (usuarioDetails.getPasswd() != null) {
-                usuario.setPasswd(usuarioDetails.getPasswd());
-            }
-            if (usuarioDetails.getExp() != null) {
-                usuario.setExp(usuarioDetails.getExp());
-            }
-            if (usuarioDetails.getFoto() != null) {
-                usuario.setFoto(usuarioDetails.getFoto());
-            }
-            return usuarioRepository.save(usuario);
+        Optional<String> nombreAnterior = usuarioRepository.findByIdUsuarioIn(List.of(id)).stream()
+            .findFirst().map(NombreUsuario::getName);
+        if (nombreAnterior.isEmpty()) {
+            return Optional.empty();
+        }
+        String name = usuarioDetails.getName() != null ? usuarioDetails.getName().trim() : null;
+        String passwd = usuarioDetails.getPasswd() != null ? autenticacionService.cifrar(usuarioDetails.getPasswd()) : null;
+        Integer exp = usuarioDetails.isExpAsignada() ? usuarioDetails.getExp() : null;
+        usuarioRepository.actualizar(id, name, passwd, exp, usuarioDetails.getFoto());
+        if (exp != null) {
+            clasificacionService.fijarExpTotal(id, exp);
+        }
+        Transacciones.despuesDeConfirmar(() -> {
+            autenticacionService.invalidar(nombreAnterior.get());
+            autenticacionService.invalidar(name);
         });
+        return getUsuarioById(id);
     }
     
-    public boolean deleteUsuario(Long id) {
-        if (usuarioRepository.existsById(id)) {
-            usuarioRepository.deleteById(id);
-            return true;
+    @Transactional
+    public Optional<Usuario> updateFoto(Long id, String referenciaFoto) {
+        if (usuarioRepository.cambiarFoto(id, referenciaFoto) == 0) {
+            return Optional.empty();
         }
-        return false;
+        return getUsuarioById(id);
     }
     
-    public Optional<Usuario> addExpToUsuario(Long id, Integer exp) {
+    public boolean deleteUsuario(Long id) {
         return usuarioRepository.findById(id).map(usuario -> {
-            usuario.addExp(exp);
-            return usuarioRepository.save(usuario);
-        });
+            usuarioRepository.delete(usuario);
+            autenticacionService.invalidar(usuario.getName());
+            clasificacionService.eliminarUsuario(id);
+            return true;
+        }).orElse(false);
     }
     
-    public boolean existsByName(String name) {
-        return usuarioRepository.existsByName(name);
+    /**
+     * Añade al usuario la experiencia que aún no se ha volcado. La entidad se desvincula
+     * para que el valor combinado nunca se escriba en la base de datos.
+     */
+    private Usuario conExpPendiente(Usuario usuario) {
+        int pendiente = expAcumulador.isHabilitado() ? expAcumulador.getPendiente(usuario.getIdUsuario()) : 0;
+        if (pendiente > 0) {
+            entityManager.detach(usuario);
+            usuario.addExp(pendiente);
+            // La experiencia pendiente es un cambio aún no escrito en la fila
+            usuario.setActualizado(LocalDateTime.now());
+        }
+        return usuario;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,120 @@
+-- Particionado mensual opcional de misiones_hechas por fecha (misiones-hechas.particionado).
+-- Flyway vuelve a ejecutar este script cuando cambia el valor; desactivarlo después no
+-- deshace el particionado.
+--
+-- PostgreSQL no admite restricciones únicas globales en una tabla particionada que no
+-- incluyan la fecha, así que la unicidad de (id_usuario, id_mision) y de la clave de
+-- idempotencia pasa a misiones_hechas_unicas. Un disparador descarta la fila si ya
+-- existe, igual que ON CONFLICT DO NOTHING.
+
+-- Crea las particiones que falten desde el mes actual hasta meses_adelante meses después
+CREATE OR REPLACE FUNCTION crear_particiones_misiones_hechas(meses_adelante integer) RETURNS integer AS $$
+DECLARE
+    mes date := date_trunc('month', LOCALTIMESTAMP)::date;
+    creadas integer := 0;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'misiones_hechas'::regclass) THEN
+        RETURN 0;
+    END IF;
+    FOR i IN 0..meses_adelante LOOP
+        IF to_regclass('misiones_hechas_p' || to_char(mes, 'YYYY_MM')) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF misiones_hechas FOR VALUES FROM (%L) TO (%L)',
+                           'misiones_hechas_p' || to_char(mes, 'YYYY_MM'), mes, mes + interval '1 month');
+            creadas := creadas + 1;
+        END IF;
+        mes := mes + interval '1 month';
+    END LOOP;
+    RETURN creadas;
+END $$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION reservar_mision_hecha() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO misiones_hechas_unicas (id_usuario, id_mision, clave_idempotencia)
+    VALUES (NEW.id_usuario, NEW.id_mision, NEW.clave_idempotencia)
+    ON CONFLICT DO NOTHING;
+    IF NOT FOUND THEN
+        RETURN NULL;
+    END IF;
+    RETURN NEW;
+END $$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION liberar_mision_hecha() RETURNS trigger AS $$
+BEGIN
+    DELETE FROM misiones_hechas_unicas
+    WHERE id_usuario = OLD.id_usuario AND id_mision = OLD.id_mision;
+    RETURN OLD;
+END $$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    mes date;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = 'misiones_hechas'::regclass) THEN
+        -- Particionada por una versión anterior de este script, que no creaba este índice
+        CREATE INDEX IF NOT EXISTS idx_misiones_hechas_clave ON misiones_hechas (clave_idempotencia);
+        RETURN;
+    END IF;
+    IF '${particionado}' <> 'true' THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE misiones_hechas RENAME TO misiones_hechas_sin_particionar;
+    -- La secuencia pertenece a la columna antigua y se borraría con la tabla
+    ALTER SEQUENCE misiones_hechas_id_key_seq OWNED BY NONE;
+
+    CREATE TABLE misiones_hechas (
+        id_key bigint NOT NULL DEFAULT nextval('misiones_hechas_id_key_seq'),
+        id_usuario bigint NOT NULL,
+        id_mision bigint NOT NULL,
+        fecha timestamp NOT NULL DEFAULT LOCALTIMESTAMP,
+        foto_mision varchar(255),
+        clave_idempotencia varchar(100)
+    ) PARTITION BY RANGE (fecha);
+
+    -- Un mes por partición desde la completación más antigua; el resto, en la de por defecto
+    SELECT date_trunc('month', min(fecha))::date INTO mes FROM misiones_hechas_sin_particionar;
+    WHILE mes < date_trunc('month', LOCALTIMESTAMP)::date LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF misiones_hechas FOR VALUES FROM (%L) TO (%L)',
+                       'misiones_hechas_p' || to_char(mes, 'YYYY_MM'), mes, mes + interval '1 month');
+        mes := mes + interval '1 month';
+    END LOOP;
+    PERFORM crear_particiones_misiones_hechas(3);
+    CREATE TABLE misiones_hechas_p_defecto PARTITION OF misiones_hechas DEFAULT;
+
+    INSERT INTO misiones_hechas (id_key, id_usuario, id_mision, fecha, foto_mision, clave_idempotencia)
+    SELECT id_key, id_usuario, id_mision, fecha, foto_mision, clave_idempotencia
+    FROM misiones_hechas_sin_particionar;
+    DROP TABLE misiones_hechas_sin_particionar;
+    ALTER SEQUENCE misiones_hechas_id_key_seq OWNED BY misiones_hechas.id_key;
+
+    ALTER TABLE misiones_hechas
+        ADD CONSTRAINT misiones_hechas_pkey PRIMARY KEY (id_key, fecha),
+        ADD CONSTRAINT fk_misiones_hechas_usuario FOREIGN KEY (id_usuario)
+            REFERENCES usuario (id_usuario) ON DELETE CASCADE,
+        ADD CONSTRAINT fk_misiones_hechas_mision FOREIGN KEY (id_mision)
+            REFERENCES misiones (id_mision) ON DELETE CASCADE;
+    CREATE INDEX idx_misiones_hechas_usuario_fecha
+        ON misiones_hechas (id_usuario, fecha DESC) INCLUDE (id_mision, id_key);
+    CREATE INDEX idx_misiones_hechas_mision_fecha
+        ON misiones_hechas (id_mision, fecha, id_key);
+    CREATE INDEX idx_misiones_hechas_fecha
+        ON misiones_hechas (fecha) INCLUDE (id_usuario, id_mision);
+    -- Búsquedas por clave de idempotencia; la unicidad la garantiza misiones_hechas_unicas
+    CREATE INDEX idx_misiones_hechas_clave
+        ON misiones_hechas (clave_idempotencia);
+
+    CREATE TABLE misiones_hechas_unicas (
+        id_usuario bigint NOT NULL REFERENCES usuario (id_usuario) ON DELETE CASCADE,
+        id_mision bigint NOT NULL REFERENCES misiones (id_mision) ON DELETE CASCADE,
+        clave_idempotencia varchar(100),
+        CONSTRAINT uk_misiones_hechas_usuario_mision PRIMARY KEY (id_usuario, id_mision),
+        CONSTRAINT uk_misiones_hechas_clave UNIQUE (clave_idempotencia)
+    );
+    INSERT INTO misiones_hechas_unicas (id_usuario, id_mision, clave_idempotencia)
+    SELECT id_usuario, id_mision, clave_idempotencia FROM misiones_hechas;
+
+    CREATE TRIGGER misiones_hechas_reservar BEFORE INSERT ON misiones_hechas
+        FOR EACH ROW EXECUTE FUNCTION reservar_mision_hecha();
+    CREATE TRIGGER misiones_hechas_liberar AFTER DELETE ON misiones_hechas
+        FOR EACH ROW EXECUTE FUNCTION liberar_mision_hecha();
+END $$;
@@ -0,0 +1,26 @@
+-- Esquema de dailysbd.sql. Las bases creadas a partir de ese volcado se toman como
+-- línea base en esta versión (spring.flyway.baseline-on-migrate) y no la ejecutan.
+
+CREATE TABLE usuario (
+    id_usuario bigserial PRIMARY KEY,
+    name varchar(50) NOT NULL,
+    passwd varchar(255) NOT NULL,
+    exp integer DEFAULT 0,
+    foto varchar(255),
+    fecha_registro timestamp DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE misiones (
+    id_mision bigserial PRIMARY KEY,
+    titulo_mision varchar(100) NOT NULL,
+    texto_mision text NOT NULL,
+    experencia_mision integer DEFAULT 0
+);
+
+CREATE TABLE misiones_hechas (
+    id_key bigserial PRIMARY KEY,
+    id_usuario bigint NOT NULL,
+    id_mision bigint NOT NULL,
+    fecha timestamp DEFAULT CURRENT_TIMESTAMP,
+    foto_mision varchar(255)
+);
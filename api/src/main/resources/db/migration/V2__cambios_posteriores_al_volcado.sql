@@ -0,0 +1,38 @@
+-- Cambios que ddl-auto=update fue aplicando después del volcado. Se escriben de forma
+-- que no fallen en las bases que ya los tienen.
+
+CREATE TABLE IF NOT EXISTS rachas (
+    id_usuario bigint PRIMARY KEY,
+    racha_actual integer,
+    racha_maxima integer,
+    ultimo_dia date
+);
+
+ALTER TABLE usuario ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+ALTER TABLE usuario ADD COLUMN IF NOT EXISTS actualizado timestamp;
+ALTER TABLE misiones_hechas ADD COLUMN IF NOT EXISTS clave_idempotencia varchar(100);
+
+-- Cada misión se completa una vez por usuario. Si hay repetidas se conserva la primera
+DELETE FROM misiones_hechas mh
+USING misiones_hechas anterior
+WHERE anterior.id_usuario = mh.id_usuario
+  AND anterior.id_mision = mh.id_mision
+  AND anterior.id_key < mh.id_key;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_misiones_hechas_usuario_mision') THEN
+        ALTER TABLE misiones_hechas
+            ADD CONSTRAINT uk_misiones_hechas_usuario_mision UNIQUE (id_usuario, id_mision);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_misiones_hechas_clave') THEN
+        ALTER TABLE misiones_hechas
+            ADD CONSTRAINT uk_misiones_hechas_clave UNIQUE (clave_idempotencia);
+    END IF;
+END $$;
+
+-- Bloques de 50 ids por nextval para el optimizador pooled-lo de Hibernate.
+-- No cambia el valor actual, así que los ids existentes se conservan
+ALTER SEQUENCE usuario_id_usuario_seq INCREMENT BY 50;
+ALTER SEQUENCE misiones_id_mision_seq INCREMENT BY 50;
+ALTER SEQUENCE misiones_hechas_id_key_seq INCREMENT BY 50;
@@ -0,0 +1,14 @@
+-- Índices de las consultas de misiones_hechas. CONCURRENTLY para no bloquear las
+-- escrituras en tablas grandes; por eso Flyway ejecuta este script sin transacción.
+
+-- Perfil, historial, versión del historial (ETag) y rachas por usuario, solo con el índice
+CREATE INDEX CONCURRENTLY idx_misiones_hechas_usuario_fecha
+    ON misiones_hechas (id_usuario, fecha DESC) INCLUDE (id_mision, id_key);
+
+-- Completaciones de una misión, paginadas por (fecha, id_key)
+CREATE INDEX CONCURRENTLY idx_misiones_hechas_mision_fecha
+    ON misiones_hechas (id_mision, fecha, id_key);
+
+-- Reconstrucción de las clasificaciones semanal y diaria
+CREATE INDEX CONCURRENTLY idx_misiones_hechas_fecha
+    ON misiones_hechas (fecha) INCLUDE (id_usuario, id_mision);
@@ -0,0 +1,31 @@
+-- Claves ajenas de misiones_hechas y rachas. Borrar un usuario o una misión borra
+-- también sus completaciones y su racha, que antes quedaban huérfanas.
+
+-- Completaciones huérfanas que dejaron los borrados anteriores
+DELETE FROM misiones_hechas mh
+WHERE NOT EXISTS (SELECT 1 FROM usuario u WHERE u.id_usuario = mh.id_usuario)
+   OR NOT EXISTS (SELECT 1 FROM misiones m WHERE m.id_mision = mh.id_mision);
+DELETE FROM rachas r
+WHERE NOT EXISTS (SELECT 1 FROM usuario u WHERE u.id_usuario = r.id_usuario);
+
+-- La fecha forma parte de los índices y de la clave de partición; nunca debe faltar
+UPDATE misiones_hechas mh
+SET fecha = COALESCE(u.fecha_registro, LOCALTIMESTAMP)
+FROM usuario u
+WHERE u.id_usuario = mh.id_usuario AND mh.fecha IS NULL;
+
+ALTER TABLE misiones_hechas
+    ALTER COLUMN id_usuario SET NOT NULL,
+    ALTER COLUMN id_mision SET NOT NULL,
+    ALTER COLUMN fecha SET NOT NULL,
+    ALTER COLUMN fecha SET DEFAULT LOCALTIMESTAMP;
+
+ALTER TABLE misiones_hechas
+    ADD CONSTRAINT fk_misiones_hechas_usuario FOREIGN KEY (id_usuario)
+        REFERENCES usuario (id_usuario) ON DELETE CASCADE,
+    ADD CONSTRAINT fk_misiones_hechas_mision FOREIGN KEY (id_mision)
+        REFERENCES misiones (id_mision) ON DELETE CASCADE;
+
+ALTER TABLE rachas
+    ADD CONSTRAINT fk_rachas_usuario FOREIGN KEY (id_usuario)
+        REFERENCES usuario (id_usuario) ON DELETE CASCADE;
@@ -0,0 +1,10 @@
+-- Nombres de usuario únicos sin distinguir mayúsculas. Si ya hay repetidos, el usuario
+-- más antiguo conserva el nombre y al resto se le añade su id para que pueda cambiarlo.
+
+UPDATE usuario SET name = btrim(name) WHERE name <> btrim(name);
+
+UPDATE usuario u SET name = left(u.name, 30) || '_' || u.id_usuario
+WHERE EXISTS (SELECT 1 FROM usuario anterior
+              WHERE lower(anterior.name) = lower(u.name) AND anterior.id_usuario < u.id_usuario);
+
+CREATE UNIQUE INDEX uk_usuario_nombre ON usuario (lower(name));
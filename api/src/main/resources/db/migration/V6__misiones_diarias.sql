@@ -0,0 +1,20 @@
+-- Misiones diarias planificadas por adelantado (PlanificadorMisionesDiarias). Leer las
+-- de un día es una búsqueda por la clave primaria y no cambia al editar el catálogo.
+
+-- Peso de cada misión en el sorteo; con 0 nunca sale como diaria
+ALTER TABLE misiones ADD COLUMN peso integer NOT NULL DEFAULT 1;
+ALTER TABLE misiones ADD CONSTRAINT ck_misiones_peso CHECK (peso >= 0);
+
+-- La misión 1 nunca ha sido diaria
+UPDATE misiones SET peso = 0 WHERE id_mision = 1;
+
+CREATE TABLE misiones_diarias (
+    fecha date NOT NULL,
+    posicion smallint NOT NULL,
+    id_mision bigint NOT NULL,
+    CONSTRAINT misiones_diarias_pkey PRIMARY KEY (fecha, posicion),
+    CONSTRAINT fk_misiones_diarias_mision FOREIGN KEY (id_mision)
+        REFERENCES misiones (id_mision) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_misiones_diarias_mision ON misiones_diarias (id_mision);
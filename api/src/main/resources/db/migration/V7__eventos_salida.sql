@@ -0,0 +1,21 @@
+-- Bandeja de salida de eventos (BandejaSalida). Cada completación guarda aquí su evento en
+-- la misma transacción que la fila de misiones_hechas; el relevo lo reclama, lo procesa
+-- fuera de la petición (racha, avisos) y lo borra. Un evento reclamado por un nodo que cae
+-- vuelve a estar disponible cuando vence reclamado_hasta.
+
+CREATE TABLE eventos_salida (
+    id_evento bigserial NOT NULL,
+    tipo varchar(50) NOT NULL,
+    id_usuario bigint NOT NULL,
+    id_mision bigint NOT NULL,
+    exp integer NOT NULL DEFAULT 0,
+    fecha timestamp NOT NULL,
+    creado timestamp NOT NULL DEFAULT LOCALTIMESTAMP,
+    reclamado_hasta timestamp,
+    CONSTRAINT eventos_salida_pkey PRIMARY KEY (id_evento),
+    -- Los eventos de un usuario borrado ya no tienen efecto
+    CONSTRAINT fk_eventos_salida_usuario FOREIGN KEY (id_usuario)
+        REFERENCES usuario (id_usuario) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_eventos_salida_usuario ON eventos_salida (id_usuario);
@@ -14,14 +14,6 @@ type AuthUser = {
   foto: string | null;
 }
 
-type MissionHecha = {
-  idKey: number;
-  idUsuario: number;
-  idMision: number;
-  fecha: string;
-  fotoMision: string | null;
-}
-
 export default function App() {
   const [user, setUser] = useState<AuthUser | null>(null);
   const [isLoading, setIsLoading] = useState(true);
@@ -34,37 +26,8 @@ export default function App() {
 
   const calculateStreak = async (userId: number) => {
     try {
-      const response = await api.getUserMissionsHistory(userId);
-      const missions: MissionHecha[] = response.data;
-      
-      const today = new Date();
-      today.setHours(0, 0, 0, 0);
-      
-      let currentStreak = 0;
-      let checkDate = new Date(today);
-      
-      while (true) {
-        const dayStart = new Date(checkDate);
-        const dayEnd = new Date(checkDate);
-        dayEnd.setHours(23, 59, 59, 999);
-        
-        const hasMissionThisDay = missions.some((m: MissionHecha) => {
-          const missionDate = new Date(m.fecha);
-          return missionDate >= dayStart && missionDate <= dayEnd;
-        });
-        
-        if (hasMissionThisDay) {
-          currentStreak++;
-          checkDate.setDate(checkDate.getDate() - 1);
-        } else {
-          if (checkDate.getTime() < today.getTime()) {
-            break;
-          }
-          break;
-        }
-      }
-      
-      return currentStreak;
+      const response = await api.getUserStreak(userId);
+      return response.data.rachaActual;
     } catch (error) {
       console.error('Error calculating streak:', error);
       return 0;
@@ -93,32 +56,28 @@ export default function App() {
   const login = (name: string, passwd: string) => {
     return new Promise(async (resolve) => {
       try {
-        const response = await api.loginUser(name);
-        if (response.data) {
-          if (response.data.passwd === passwd) {
-            const userData: AuthUser = {
-              id: response.data.idUsuario,
-              name: response.data.name,
-              exp: response.data.exp,
-              foto: response.data.foto,
-            };
-            
-            await AsyncStorage.setItem('user', JSON.stringify(userData));
-            setUser(userData);
-            
-            const userStreak = await calculateStreak(userData.id);
-            setStreak(userStreak);
-            
-            setCurrentScreen('MainTabs');
-            resolve({ success: true, data: userData });
-          } else {
-            resolve({ success: false, error: 'Contraseña incorrecta' });
-          }
+        const response = await api.loginUser(name, passwd);
+        const userData: AuthUser = {
+          id: response.data.idUsuario,
+          name: response.data.name,
+          exp: response.data.exp,
+          foto: response.data.foto,
+        };
+        
+        await AsyncStorage.setItem('user', JSON.stringify(userData));
+        setUser(userData);
+        
+        const userStreak = await calculateStreak(userData.id);
+        setStreak(userStreak);
+        
+        setCurrentScreen('MainTabs');
+        resolve({ success: true, data: userData });
+      } catch (error: any) {
+        if (error.response?.status === 401) {
+          resolve({ success: false, error: 'Usuario o contraseña incorrectos' });
         } else {
-          resolve({ success: false, error: 'Usuario no encontrado' });
+          resolve({ success: false, error: 'Error al iniciar sesión' });
         }
-      } catch (error) {
-        resolve({ success: false, error: 'Error al iniciar sesión' });
       }
     });
   };
@@ -145,8 +104,12 @@ export default function App() {
         } else {
           resolve({ success: false, error: 'Error en el registro' });
         }
-      } catch (error) {
-        resolve({ success: false, error: 'Error en el registro' });
+      } catch (error: any) {
+        if (error.response?.status === 409) {
+          resolve({ success: false, error: 'Ese nombre de usuario ya existe' });
+        } else {
+          resolve({ success: false, error: 'Error en el registro' });
+        }
       }
     });
   };
@@ -95,9 +95,8 @@ export default function AjustesScreen({ user, logout, updateUserData }: AjustesS
     if (!photoUri) return;
 
     try {
-      const base64Photo = photoUri;
-      await api.updateUser(user.id, { foto: base64Photo });
-      updateUserData({ foto: base64Photo });
+      const response = await api.uploadUserPhoto(user.id, photoUri);
+      updateUserData({ foto: response.data.foto });
       
       setShowCameraModal(false);
       setPhotoUri(null);
@@ -108,6 +107,17 @@ export default function AjustesScreen({ user, logout, updateUserData }: AjustesS
     }
   };
 
+  // La contraseña solo se puede comprobar en el servidor
+  const checkPassword = async (passwd: string) => {
+    try {
+      await api.loginUser(user.name, passwd);
+      return true;
+    } catch (error: any) {
+      if (error.response?.status === 401) return false;
+      throw error;
+    }
+  };
+
   const handleChangePassword = async () => {
     if (!currentPassword || !newPassword || !confirmNewPassword) {
       Alert.alert('Error', 'Completa todos los campos');
@@ -125,8 +135,7 @@ export default function AjustesScreen({ user, logout, updateUserData }: AjustesS
     }
 
     try {
-      const response = await api.loginUser(user.name);
-      if (response.data.passwd !== currentPassword) {
+      if (!(await checkPassword(currentPassword))) {
         Alert.alert('Error', 'La contraseña actual es incorrecta');
         return;
       }
@@ -152,8 +161,7 @@ export default function AjustesScreen({ user, logout, updateUserData }: AjustesS
     }
 
     try {
-      const response = await api.loginUser(user.name);
-      if (response.data.passwd !== deletePassword) {
+      if (!(await checkPassword(deletePassword))) {
         Alert.alert('Error', 'Contraseña incorrecta');
         return;
       }
@@ -185,7 +193,7 @@ export default function AjustesScreen({ user, logout, updateUserData }: AjustesS
             ]}
             onPress={handleOpenCamera}>
             {user.foto ? (
-              <Image source={{ uri: user.foto }} style={styles.avatar} />
+              <Image source={{ uri: api.getPhotoUrl(user.foto, 256) }} style={styles.avatar} />
             ) : (
               <View style={styles.defaultAvatar}>
                 <MaterialIcons name="person" size={60} color="#7adbd8" />
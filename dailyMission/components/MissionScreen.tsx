@@ -51,7 +51,7 @@ export default function MissionScreen({ user, streak, updateStreak, updateUserDa
 
   const loadDailyMissions = async () => {
     try {
-      const response = await api.getDailyMissions();
+      const response = await api.getDailyMissions(user.id);
       setMissions(response.data || []);
     } catch (error) {
       console.error('Error loading daily missions:', error);
@@ -144,34 +144,8 @@ export default function MissionScreen({ user, streak, updateStreak, updateUserDa
 
   const updateStreakCount = async () => {
     try {
-      const response = await api.getUserMissionsHistory(user.id);
-      const missions: MissionHecha[] = response.data;
-      
-      const today = new Date();
-      today.setHours(0, 0, 0, 0);
-      
-      let currentStreak = 0;
-      let checkDate = new Date(today);
-      
-      while (true) {
-        const dayStart = new Date(checkDate);
-        const dayEnd = new Date(checkDate);
-        dayEnd.setHours(23, 59, 59, 999);
-        
-        const hasMissionThisDay = missions.some((m: MissionHecha) => {
-          const missionDate = new Date(m.fecha);
-          return missionDate >= dayStart && missionDate <= dayEnd;
-        });
-        
-        if (hasMissionThisDay) {
-          currentStreak++;
-          checkDate.setDate(checkDate.getDate() - 1);
-        } else {
-          break;
-        }
-      }
-      
-      updateStreak(currentStreak);
+      const response = await api.getUserStreak(user.id);
+      updateStreak(response.data.rachaActual);
     } catch (error) {
       console.error('Error updating streak:', error);
     }
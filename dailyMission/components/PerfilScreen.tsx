@@ -9,6 +9,8 @@ type Usuario = {
   name: string;
   exp: number;
   foto: string | null;
+  nivel: number;
+  progreso: number;
 }
 
 type MisionHecha = {
@@ -19,12 +21,6 @@ type MisionHecha = {
   fotoMision: string | null;
 }
 
-type Mision = {
-  idMision: number;
-  tituloMision: string;
-  experenciaMision: number;
-}
-
 type UserType = {
   id: number;
   name: string;
@@ -57,32 +53,14 @@ export default function PerfilScreen({ user }: PerfilScreenProps) {
           idUsuario: userResponse.data.idUsuario,
           name: userResponse.data.name,
           exp: userResponse.data.exp,
-          foto: userResponse.data.foto
+          foto: userResponse.data.foto,
+          nivel: userResponse.data.nivel,
+          progreso: userResponse.data.progreso
         };
         setUserData(userDataFromApi);
         
-        const historyResponse = await api.getUserMissionsHistory(user.id);
-        const missionsHistory: MisionHecha[] = historyResponse.data;
-        
-        const detailsResponse = await api.getUserCompletedMissions(user.id);
-        const missionsDetails: Mision[] = detailsResponse.data;
-        
-        const combinedData: CombinedMission[] = missionsHistory.map(function(mh) {
-          const detail = missionsDetails.find(function(md) {
-            return md.idMision === mh.idMision;
-          });
-          return {
-            ...mh,
-            tituloMision: detail?.tituloMision,
-            experenciaMision: detail?.experenciaMision,
-          };
-        });
-        
-        combinedData.sort(function(a, b) {
-          return new Date(b.fecha).getTime() - new Date(a.fecha).getTime();
-        });
-        
-        setCompletedMissions(combinedData);
+        const historyResponse = await api.getUserMissionsWithDetails(user.id);
+        setCompletedMissions(historyResponse.data);
       }
     } catch (error) {
       console.error('Error loading user data:', error);
@@ -113,7 +91,7 @@ export default function PerfilScreen({ user }: PerfilScreenProps) {
       <View style={styles.missionCard}>
         {item.fotoMision && (
           <Image 
-            source={{ uri: item.fotoMision }} 
+            source={{ uri: api.getPhotoUrl(item.fotoMision, 1024) }} 
             style={styles.missionPhoto}
             resizeMode="cover"
           />
@@ -145,15 +123,15 @@ export default function PerfilScreen({ user }: PerfilScreenProps) {
 
   function renderHeader() {
     const currentExp = userData?.exp || 0;
-    const currentLevel = Math.floor(currentExp / 100);
-    const expProgress = currentExp % 100;
+    const currentLevel = userData?.nivel || 0;
+    const expProgress = userData?.progreso || 0;
 
     return (
       <>
         <View style={styles.profileHeader}>
           <View style={styles.avatarContainer}>
             {userData?.foto ? (
-              <Image source={{ uri: userData.foto }} style={styles.avatar} />
+              <Image source={{ uri: api.getPhotoUrl(userData.foto, 256) }} style={styles.avatar} />
             ) : (
               <View style={styles.defaultAvatar}>
                 <MaterialIcons name="person" size={60} color="#fff" />
@@ -1,10 +1,12 @@
+// Perfil público: el nivel lo calcula el servidor con su curva de niveles
 export type Usuario = {
   idUsuario: number;
   name: string;
-  passwd: string;
   exp: number;
   foto: string | null;
-  fechaRegistro: string;
+  nivel: number;
+  progreso: number;
+  expSiguienteNivel: number;
 };
 
 export type Mision = {
@@ -22,6 +24,54 @@ export type MisionHecha = {
   fotoMision: string | null;
 };
 
+export type MisionCompletada = MisionHecha & {
+  tituloMision: string;
+  textoMision: string;
+  experenciaMision: number;
+};
+
+export type CompletacionOffline = {
+  clave: string;
+  idUsuario: number;
+  idMision: number;
+  fecha: string;
+  fotoMision: string | null;
+};
+
+export type ResultadoSincronizacion = {
+  clave: string;
+  estado: 'CREADA' | 'REPETIDA' | 'YA_COMPLETADA' | 'NO_VALIDA';
+  idKey: number | null;
+};
+
+export type Pagina<T> = {
+  items: T[];
+  next: string | null;
+};
+
+export type Racha = {
+  idUsuario: number;
+  rachaActual: number;
+  rachaMaxima: number;
+  ultimoDia: string | null;
+};
+
+export type ActividadPeriodo = {
+  inicio: string;
+  completadas: number;
+  exp: number;
+};
+
+export type PeriodoActividad = 'dia' | 'semana' | 'mes';
+
+export type ResumenActividad = {
+  completadas: number;
+  exp: number;
+  diasActivos: number;
+  primera: string | null;
+  ultima: string | null;
+};
+
 export type AuthUser = {
   id: number;
   name: string;
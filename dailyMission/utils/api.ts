@@ -1,5 +1,5 @@
 import axios from 'axios';
-import { Usuario, Mision, MisionHecha } from '../tipos/types';
+import { Usuario, Mision, MisionHecha, MisionCompletada, Racha, Pagina, CompletacionOffline, ResultadoSincronizacion, ActividadPeriodo, PeriodoActividad, ResumenActividad } from '../tipos/types';
 
 const API_URL = 'http://10.0.2.2:8080/api/api';
 
@@ -19,9 +19,25 @@ api.interceptors.response.use(
   }
 );
 
+// Fotos
+const photoForm = (fotoUri: string) => {
+  const form = new FormData();
+  form.append('foto', { uri: fotoUri, name: 'foto.jpg', type: 'image/jpeg' } as any);
+  return form;
+};
+
+// Las fotos se guardan en el servidor y las entidades solo tienen su referencia.
+// size indica el lado con el que se va a mostrar para recibir una miniatura
+export const getPhotoUrl = (referencia: string | null, size?: number) => {
+  if (!referencia) return null;
+  if (!/^[0-9a-f]{64}$/.test(referencia)) return referencia;
+  return size ? `${API_URL}/fotos/${referencia}?size=${size}` : `${API_URL}/fotos/${referencia}`;
+};
+
 // Usuarios
-export const loginUser = (name: string) => {
-  return api.get<Usuario>(`/usuarios/buscar/${name}`);
+// La contraseña se comprueba en el servidor; responde 401 si no es correcta
+export const loginUser = (name: string, passwd: string) => {
+  return api.post<Usuario>('/usuarios/login', { name, passwd });
 };
 
 export const registerUser = (userData: { name: string; passwd: string }) => {
@@ -36,6 +52,16 @@ export const updateUser = (id: number, userData: { name?: string; passwd?: strin
   return api.put<Usuario>(`/usuarios/${id}`, userData);
 };
 
+export const getUserStreak = (id: number) => {
+  return api.get<Racha>(`/usuarios/${id}/racha`);
+};
+
+export const uploadUserPhoto = (id: number, fotoUri: string) => {
+  return api.put<Usuario>(`/usuarios/${id}/foto`, photoForm(fotoUri), {
+    headers: { 'Content-Type': 'multipart/form-data' },
+  });
+};
+
 export const deleteUser = (id: number) => {
   return api.delete(`/usuarios/${id}`);
 };
@@ -49,22 +75,33 @@ export const getMissionById = (id: number) => {
   return api.get<Mision>(`/misiones/${id}`);
 };
 
-export const searchMissions = (title: string) => {
-  return api.get<Mision[]>(`/misiones/buscar?titulo=${title}`);
+export const searchMissions = (query: string, cursor: string | null = null) => {
+  return api.get<Pagina<Mision>>('/misiones/buscar', { params: { q: query, cursor } });
 };
 
 // Misiones Diarias
-export const getDailyMissions = () => {
-  return api.get<Mision[]>('/misiones-diarias');
+// Con idUsuario, las misiones que el usuario ya completó se sustituyen por otras
+export const getDailyMissions = (idUsuario?: number) => {
+  return api.get<Mision[]>('/misiones-diarias', { params: { idUsuario } });
 };
 
-export const verifyDailyMission = (idMision: number) => {
-  return api.get<boolean>(`/misiones-diarias/verificar/${idMision}`);
+export const verifyDailyMission = (idMision: number, idUsuario?: number) => {
+  return api.get<boolean>(`/misiones-diarias/verificar/${idMision}`, { params: { idUsuario } });
 };
 
 // Misiones Hechas
-export const completeMission = (idUsuario: number, idMision: number, fotoMision: string | null = null) => {
-  return api.post<MisionHecha>(`/misiones-hechas/completar?idUsuario=${idUsuario}&idMision=${idMision}&fotoMision=${fotoMision || ''}`);
+export const completeMission = (idUsuario: number, idMision: number, fotoUri: string | null = null) => {
+  const url = `/misiones-hechas/completar?idUsuario=${idUsuario}&idMision=${idMision}`;
+  if (!fotoUri) {
+    return api.post<MisionHecha>(url);
+  }
+  return api.post<MisionHecha>(url, photoForm(fotoUri), {
+    headers: { 'Content-Type': 'multipart/form-data' },
+  });
+};
+
+export const syncCompletions = (completaciones: CompletacionOffline[]) => {
+  return api.post<ResultadoSincronizacion[]>('/misiones-hechas/sincronizar', completaciones);
 };
 
 export const getUserCompletedMissions = (idUsuario: number) => {
@@ -75,6 +112,19 @@ export const getUserMissionsHistory = (idUsuario: number) => {
   return api.get<MisionHecha[]>(`/misiones-hechas/usuario/${idUsuario}`);
 };
 
+export const getUserMissionsWithDetails = (idUsuario: number) => {
+  return api.get<MisionCompletada[]>(`/misiones-hechas/usuario/${idUsuario}/historial`);
+};
+
+// Agregados calculados en el servidor; fechas en formato YYYY-MM-DD
+export const getUserActivityCalendar = (idUsuario: number, desde?: string, hasta?: string, periodo: PeriodoActividad = 'dia') => {
+  return api.get<ActividadPeriodo[]>(`/misiones-hechas/usuario/${idUsuario}/calendario`, { params: { desde, hasta, periodo } });
+};
+
+export const getUserActivitySummary = (idUsuario: number) => {
+  return api.get<ResumenActividad>(`/misiones-hechas/usuario/${idUsuario}/resumen`);
+};
+
 export const deleteCompletedMission = (id: number) => {
   return api.delete(`/misiones-hechas/${id}`);
 };
\ No newline at end of file